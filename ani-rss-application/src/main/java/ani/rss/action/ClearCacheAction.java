@@ -3,6 +3,7 @@ package ani.rss.action;
 import ani.rss.commons.FileUtils;
 import ani.rss.entity.Ani;
 import ani.rss.service.ClearService;
+import ani.rss.util.basic.ImgCacheUtil;
 import ani.rss.util.other.AniUtil;
 import ani.rss.util.other.ConfigUtil;
 import ani.rss.web.action.BaseAction;
@@ -39,7 +40,6 @@ public class ClearCacheAction implements BaseAction {
                 .collect(Collectors.toSet());
 
         FileUtil.mkdir(configDirStr + "/files");
-        FileUtil.mkdir(configDirStr + "/img");
 
         Set<File> files = FileUtil.loopFiles(configDirStr + "/files")
                 .stream()
@@ -50,7 +50,7 @@ public class ClearCacheAction implements BaseAction {
         long filesSize = files.stream()
                 .mapToLong(File::length)
                 .sum();
-        long imgSize = FileUtil.size(new File(configDirStr + "/img"));
+        long imgSize = FileUtil.size(ImgCacheUtil.getImgDir());
 
         long sumSize = filesSize + imgSize;
 
@@ -64,7 +64,7 @@ public class ClearCacheAction implements BaseAction {
             ClearService.clearParentFile(file);
         }
 
-        FileUtil.del(configDirStr + "/img");
+        ImgCacheUtil.clear();
 
         resultSuccessMsg("清理完成, 共清理{}MB", NumberUtil.decimalFormat("0.00", sumSize / 1024.0 / 1024.0));
     }
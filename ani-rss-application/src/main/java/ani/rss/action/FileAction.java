@@ -1,7 +1,8 @@
 package ani.rss.action;
 
 import ani.rss.commons.ExceptionUtils;
-import ani.rss.util.basic.HttpReq;
+import ani.rss.commons.FileUtils;
+import ani.rss.util.basic.ImgCacheUtil;
 import ani.rss.util.other.ConfigUtil;
 import ani.rss.web.action.BaseAction;
 import ani.rss.web.annotation.Auth;
@@ -9,24 +10,30 @@ import ani.rss.web.annotation.Path;
 import ani.rss.web.auth.enums.AuthType;
 import ani.rss.web.util.ServerUtil;
 import cn.hutool.core.codec.Base64;
-import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.text.StrFormatter;
-import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.core.util.URLUtil;
 import cn.hutool.http.Header;
-import cn.hutool.http.HttpConnection;
 import cn.hutool.http.server.HttpServerRequest;
 import cn.hutool.http.server.HttpServerResponse;
 import lombok.Cleanup;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
-import java.net.URI;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
-import java.util.function.Consumer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * 文件
@@ -41,71 +48,33 @@ import java.util.function.Consumer;
 @Path("/file")
 public class FileAction implements BaseAction {
 
-    public void getImg(String url, Consumer<InputStream> consumer) {
-        URI host = URLUtil.getHost(URLUtil.url(url));
-        HttpReq.get(url)
-                .then(res -> {
-                    HttpConnection httpConnection = (HttpConnection) ReflectUtil.getFieldValue(res, "httpConnection");
-                    URI host1 = URLUtil.getHost(httpConnection.getUrl());
-                    if (host.toString().equals(host1.toString())) {
-                        try {
-                            @Cleanup
-                            InputStream inputStream = res.bodyStream();
-                            consumer.accept(inputStream);
-                        } catch (Exception ignored) {
-                        }
-                        return;
-                    }
-                    String newUrl = url.replace(host.toString(), host1.toString());
-                    getImg(newUrl, consumer);
-                });
-    }
+    /**
+     * Range 最多的段数, 超出时返回整个文件
+     */
+    private static final int MAX_RANGES = 16;
 
     /**
      * 处理图片文件
      *
-     * @param img 图片名
+     * @param img   图片地址
+     * @param width 缩略图宽度
      */
-    public void doImg(String img) {
-        HttpServerResponse response = ServerUtil.RESPONSE.get();
-
-        // 30 天
-        long maxAge = 86400 * 30;
-
-        response.setHeader(Header.CACHE_CONTROL, "private, max-age=" + maxAge);
-
-        String contentType = getContentType(URLUtil.getPath(img));
-
-        File configDir = ConfigUtil.getConfigDir();
-
-        File file = new File(URLUtil.getPath(img));
-        configDir = new File(configDir + "/img/" + file.getParentFile().getName());
-        FileUtil.mkdir(configDir);
-
-        File imgFile = new File(configDir, file.getName());
-        if (imgFile.exists()) {
-            try {
-                @Cleanup
-                InputStream inputStream = FileUtil.getInputStream(imgFile);
-                response.write(inputStream, (int) imgFile.length(), contentType);
-            } catch (Exception ignored) {
-            }
+    public void doImg(String img, Integer width) {
+        File file;
+        try {
+            file = ImgCacheUtil.get(img, width);
+        } catch (Exception e) {
+            log.warn("获取图片失败 {} {}", img, ExceptionUtils.getMessage(e));
+            BaseAction.writeNotFound();
             return;
         }
-
-        getImg(img, is -> {
-            try {
-                FileUtil.writeFromStream(is, imgFile, true);
-                @Cleanup
-                BufferedInputStream inputStream = FileUtil.getInputStream(imgFile);
-                response.write(inputStream, (int) imgFile.length(), contentType);
-            } catch (Exception ignored) {
-            }
-        });
+        doFile(FileUtils.getAbsolutePath(file));
     }
 
     /**
      * 处理文件
+     * <p>
+     * 支持 Range (含多段)、If-Range、ETag 与 Last-Modified
      *
      * @param filename 文件名
      */
@@ -123,33 +92,18 @@ public class FileAction implements BaseAction {
             }
         }
 
-        boolean hasRange = false;
         long fileLength = file.length();
-        long start = 0;
-        long end = fileLength - 1;
+        long lastModified = file.lastModified();
+        String etag = StrFormatter.format("\"{}-{}\"", Long.toHexString(lastModified), Long.toHexString(fileLength));
+        String lastModifiedStr = DateUtil.formatHttpDate(new Date(lastModified));
 
         String contentType = getContentType(file.getName());
 
         response.setHeader(Header.CONTENT_DISPOSITION, StrFormatter.format("inline; filename=\"{}\"", URLUtil.encode(file.getName())));
-        if (contentType.startsWith("video/")) {
-            response.setContentType(contentType);
-            response.setHeader("Accept-Ranges", "bytes");
-            String rangeHeader = request.getHeader("Range");
-            if (StrUtil.isNotBlank(rangeHeader) && rangeHeader.startsWith("bytes=")) {
-                String[] range = rangeHeader.substring(6).split("-");
-                if (range.length > 0) {
-                    start = Long.parseLong(range[0]);
-                }
-                if (range.length > 1) {
-                    end = Long.parseLong(range[1]);
-                } else {
-                    long maxEnd = start + (1024 * 1024 * 10);
-                    end = Math.min(end, maxEnd);
-                }
-            }
-            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + fileLength);
-            hasRange = true;
-        } else {
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader(Header.ETAG, etag);
+        response.setHeader("Last-Modified", lastModifiedStr);
+        if (!contentType.startsWith("video/")) {
             long maxAge = 0;
 
             // 小于或者等于 3M 缓存
@@ -159,34 +113,214 @@ public class FileAction implements BaseAction {
             }
 
             response.setHeader(Header.CACHE_CONTROL, "private, max-age=" + maxAge);
-            response.setContentType(contentType);
         }
 
         try {
-            if (hasRange) {
-                long length = end - start;
-                response.send(206, length);
+            if (isNotModified(request, etag, lastModified)) {
+                response.send(304, -1);
+                return;
+            }
+
+            List<long[]> ranges = List.of();
+            String rangeHeader = request.getHeader("Range");
+            if (StrUtil.isNotBlank(rangeHeader) && isIfRangeMatch(request, etag, lastModified)) {
+                ranges = parseRanges(rangeHeader, fileLength);
+                if (Objects.isNull(ranges)) {
+                    response.setHeader("Content-Range", "bytes */" + fileLength);
+                    response.send(416, -1);
+                    return;
+                }
+            }
+
+            @Cleanup
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+            if (ranges.isEmpty()) {
+                response.setContentType(contentType);
+                response.send(200, fileLength > 0 ? fileLength : -1);
                 @Cleanup
                 OutputStream out = response.getOut();
+                transfer(channel, 0, fileLength, out);
+                return;
+            }
+
+            if (ranges.size() == 1) {
+                long[] range = ranges.get(0);
+                long length = range[1] - range[0] + 1;
+                response.setContentType(contentType);
+                response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + fileLength);
+                response.send(206, length);
                 @Cleanup
-                RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
-                randomAccessFile.seek(start);
-                @Cleanup
-                FileChannel channel = randomAccessFile.getChannel();
-                @Cleanup
-                InputStream inputStream = Channels.newInputStream(channel);
-                IoUtil.copy(inputStream, out, 40960, length, null);
-            } else {
-                @Cleanup
-                InputStream inputStream = FileUtil.getInputStream(file);
-                response.write(inputStream, (int) fileLength);
+                OutputStream out = response.getOut();
+                transfer(channel, range[0], length, out);
+                return;
+            }
+
+            // 多段
+            String boundary = IdUtil.fastSimpleUUID();
+            List<byte[]> partHeaders = new ArrayList<>();
+            long length = 0;
+            for (long[] range : ranges) {
+                String partHeader = StrFormatter.format("\r\n--{}\r\nContent-Type: {}\r\nContent-Range: bytes {}-{}/{}\r\n\r\n",
+                        boundary, contentType, range[0], range[1], fileLength);
+                byte[] bytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+                partHeaders.add(bytes);
+                length += bytes.length + range[1] - range[0] + 1;
+            }
+            byte[] end = StrFormatter.format("\r\n--{}--\r\n", boundary).getBytes(StandardCharsets.US_ASCII);
+            length += end.length;
+
+            response.setContentType("multipart/byteranges; boundary=" + boundary);
+            response.send(206, length);
+            @Cleanup
+            OutputStream out = response.getOut();
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                transfer(channel, range[0], range[1] - range[0] + 1, out);
             }
+            out.write(end);
         } catch (Exception e) {
             String message = ExceptionUtils.getMessage(e);
             log.debug(message, e);
         }
     }
 
+    /**
+     * 将文件的一段写入响应, 使用 transferTo 避免经过 InputStream 与额外的缓冲区
+     *
+     * @param channel  文件
+     * @param position 开始位置
+     * @param count    长度
+     * @param out      响应
+     */
+    private static void transfer(FileChannel channel, long position, long count, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        while (count > 0) {
+            long n = channel.transferTo(position, count, target);
+            if (n <= 0) {
+                break;
+            }
+            position += n;
+            count -= n;
+        }
+    }
+
+    /**
+     * 解析 Range
+     * <p>
+     * 重叠或相邻的范围合并为一段, 段数超过 {@link #MAX_RANGES} 时返回整个文件
+     *
+     * @param rangeHeader Range
+     * @param fileLength  文件大小
+     * @return 范围 [开始, 结束] (按开始位置排序), 格式不支持时返回空列表 (返回整个文件), 无法满足时返回 null
+     */
+    public static List<long[]> parseRanges(String rangeHeader, long fileLength) {
+        if (!rangeHeader.startsWith("bytes=") || StrUtil.isBlank(rangeHeader.substring(6))) {
+            return List.of();
+        }
+        List<String> specs = StrUtil.split(rangeHeader.substring(6), ",", true, true);
+        if (specs.size() > MAX_RANGES) {
+            return List.of();
+        }
+        List<long[]> ranges = new ArrayList<>();
+        for (String s : specs) {
+            int i = s.indexOf('-');
+            if (i < 0) {
+                return List.of();
+            }
+            String startStr = s.substring(0, i).trim();
+            String endStr = s.substring(i + 1).trim();
+            boolean hasStart = NumberUtil.isLong(startStr);
+            boolean hasEnd = NumberUtil.isLong(endStr);
+            if ((!hasStart && !startStr.isEmpty()) || (!hasEnd && !endStr.isEmpty()) || (!hasStart && !hasEnd)) {
+                return List.of();
+            }
+            long start;
+            long end;
+            if (!hasStart) {
+                // 最后 n 字节
+                long suffix = Long.parseLong(endStr);
+                if (suffix <= 0) {
+                    continue;
+                }
+                start = Math.max(fileLength - suffix, 0);
+                end = fileLength - 1;
+            } else {
+                start = Long.parseLong(startStr);
+                if (hasEnd && Long.parseLong(endStr) < start) {
+                    return List.of();
+                }
+                end = hasEnd ? Math.min(Long.parseLong(endStr), fileLength - 1) : fileLength - 1;
+            }
+            if (start >= fileLength) {
+                continue;
+            }
+            ranges.add(new long[]{start, end});
+        }
+        if (ranges.isEmpty()) {
+            return null;
+        }
+
+        // 合并重叠或相邻的范围
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> merged = new ArrayList<>();
+        long[] last = null;
+        for (long[] range : ranges) {
+            if (Objects.nonNull(last) && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+                continue;
+            }
+            last = range;
+            merged.add(range);
+        }
+        return merged;
+    }
+
+    /**
+     * 是否未修改
+     */
+    private static boolean isNotModified(HttpServerRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (StrUtil.isNotBlank(ifNoneMatch)) {
+            return "*".equals(ifNoneMatch.trim()) || StrUtil.split(ifNoneMatch, ",", true, true)
+                    .stream()
+                    .map(it -> StrUtil.removePrefix(it, "W/"))
+                    .anyMatch(etag::equals);
+        }
+        String ifModifiedSince = request.getHeader("If-Modified-Since");
+        if (StrUtil.isBlank(ifModifiedSince)) {
+            return false;
+        }
+        try {
+            long since = DateUtil.parse(ifModifiedSince, DatePattern.HTTP_DATETIME_FORMAT).getTime();
+            // Http 时间精确到秒
+            return lastModified / 1000 <= since / 1000;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * If-Range 与当前文件一致时才按 Range 返回
+     */
+    private static boolean isIfRangeMatch(HttpServerRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (StrUtil.isBlank(ifRange)) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return etag.equals(ifRange);
+        }
+        try {
+            long date = DateUtil.parse(ifRange, DatePattern.HTTP_DATETIME_FORMAT).getTime();
+            return lastModified / 1000 == date / 1000;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     @Override
     public void doAction(HttpServerRequest request, HttpServerResponse response) throws IOException {
         String img = request.getParam("img");
@@ -194,7 +328,8 @@ public class FileAction implements BaseAction {
             if (Base64.isBase64(img)) {
                 img = Base64.decodeStr(img);
             }
-            doImg(img);
+            String w = request.getParam("w");
+            doImg(img, NumberUtil.isInteger(w) ? Integer.parseInt(w) : null);
             return;
         }
 
@@ -0,0 +1,76 @@
+package ani.rss.action;
+
+import ani.rss.util.other.MetricsUtil;
+import ani.rss.web.action.BaseAction;
+import ani.rss.web.annotation.Auth;
+import ani.rss.web.annotation.Path;
+import ani.rss.web.auth.enums.AuthType;
+import ani.rss.web.util.EventStream;
+import ani.rss.web.util.ServerLane;
+import ani.rss.web.util.ServerUtil;
+import cn.hutool.http.Header;
+import cn.hutool.http.server.HttpServerRequest;
+import cn.hutool.http.server.HttpServerResponse;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * 运行指标 (Prometheus 文本格式)
+ */
+@Auth(type = {
+        AuthType.IP_WHITE_LIST,
+        AuthType.HEADER,
+        AuthType.FORM,
+        AuthType.API_KEY
+})
+@Path("/metrics")
+public class MetricsAction implements BaseAction {
+    @Override
+    public void doAction(HttpServerRequest request, HttpServerResponse response) {
+        StringBuilder sb = new StringBuilder();
+        MetricsUtil.write(sb);
+
+        List<ServerLane.LaneStats> lanes = Stream.of(ServerUtil.API_LANE, ServerUtil.BULK_LANE)
+                .filter(Objects::nonNull)
+                .map(ServerLane::stats)
+                .toList();
+        MetricsUtil.type(sb, "ani_rss_http_active", "处理中的请求数", "gauge");
+        for (ServerLane.LaneStats it : lanes) {
+            MetricsUtil.sample(sb, "ani_rss_http_active", "lane", it.getName(), it.getActive());
+        }
+        MetricsUtil.type(sb, "ani_rss_http_queue", "排队中的请求数", "gauge");
+        for (ServerLane.LaneStats it : lanes) {
+            MetricsUtil.sample(sb, "ani_rss_http_queue", "lane", it.getName(), it.getQueued());
+        }
+        MetricsUtil.type(sb, "ani_rss_http_requests_total", "已处理的请求数", "counter");
+        for (ServerLane.LaneStats it : lanes) {
+            MetricsUtil.sample(sb, "ani_rss_http_requests_total", "lane", it.getName(), it.getCount());
+        }
+        MetricsUtil.type(sb, "ani_rss_http_rejected_total", "被拒绝的请求数", "counter");
+        for (ServerLane.LaneStats it : lanes) {
+            MetricsUtil.sample(sb, "ani_rss_http_rejected_total", "lane", it.getName(), it.getRejected());
+        }
+        MetricsUtil.type(sb, "ani_rss_http_wait_avg_seconds", "平均排队时间", "gauge");
+        for (ServerLane.LaneStats it : lanes) {
+            MetricsUtil.sample(sb, "ani_rss_http_wait_avg_seconds", "lane", it.getName(), it.getAvgWaitMillis() / 1000.0);
+        }
+        MetricsUtil.type(sb, "ani_rss_http_wait_max_seconds", "最长排队时间", "gauge");
+        for (ServerLane.LaneStats it : lanes) {
+            MetricsUtil.sample(sb, "ani_rss_http_wait_max_seconds", "lane", it.getName(), it.getMaxWaitMillis() / 1000.0);
+        }
+        MetricsUtil.type(sb, "ani_rss_http_run_avg_seconds", "平均处理时间", "gauge");
+        for (ServerLane.LaneStats it : lanes) {
+            MetricsUtil.sample(sb, "ani_rss_http_run_avg_seconds", "lane", it.getName(), it.getAvgRunMillis() / 1000.0);
+        }
+        MetricsUtil.type(sb, "ani_rss_http_run_max_seconds", "最长处理时间", "gauge");
+        for (ServerLane.LaneStats it : lanes) {
+            MetricsUtil.sample(sb, "ani_rss_http_run_max_seconds", "lane", it.getName(), it.getMaxRunMillis() / 1000.0);
+        }
+        MetricsUtil.gauge(sb, "ani_rss_sse_clients", "推送连接数", EventStream.size());
+
+        response.setHeader(Header.CACHE_CONTROL, "no-store");
+        response.write(sb.toString(), "text/plain; version=0.0.4; charset=utf-8");
+    }
+}
@@ -38,6 +38,12 @@ public class NotificationAction implements BaseAction {
 
         if ("add".equals(type)) {
             add();
+            return;
+        }
+
+        if ("stats".equals(type)) {
+            // 各通知渠道的队列长度与发送耗时
+            resultSuccess(NotificationUtil.stats());
         }
 
     }
@@ -0,0 +1,88 @@
+import ani.rss.action.FileAction;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFileRange {
+    private static final long LENGTH = 1000;
+
+    @Test
+    public void single() {
+        assertRanges("bytes=0-99", 0, 99);
+        // 结束超出文件大小
+        assertRanges("bytes=900-2000", 900, 999);
+    }
+
+    @Test
+    public void suffix() {
+        assertRanges("bytes=-100", 900, 999);
+        // 大于文件大小时返回整个文件
+        assertRanges("bytes=-5000", 0, 999);
+    }
+
+    @Test
+    public void openEnded() {
+        assertRanges("bytes=500-", 500, 999);
+    }
+
+    @Test
+    public void unsatisfiable() {
+        assertNull(FileAction.parseRanges("bytes=1000-", LENGTH));
+        assertNull(FileAction.parseRanges("bytes=2000-3000", LENGTH));
+        assertNull(FileAction.parseRanges("bytes=-0", LENGTH));
+        // 部分可满足时忽略无法满足的
+        assertRanges("bytes=2000-3000,0-9", 0, 9);
+    }
+
+    @Test
+    public void invalid() {
+        // 格式不支持时返回整个文件
+        assertTrue(FileAction.parseRanges("items=0-1", LENGTH).isEmpty());
+        assertTrue(FileAction.parseRanges("bytes=", LENGTH).isEmpty());
+        assertTrue(FileAction.parseRanges("bytes=a-b", LENGTH).isEmpty());
+        assertTrue(FileAction.parseRanges("bytes=-", LENGTH).isEmpty());
+        assertTrue(FileAction.parseRanges("bytes=10-5", LENGTH).isEmpty());
+    }
+
+    @Test
+    public void multi() {
+        assertRanges("bytes=0-9,100-109,-10", 0, 9, 100, 109, 990, 999);
+        // 按开始位置排序
+        assertRanges("bytes=100-109,0-9", 0, 9, 100, 109);
+    }
+
+    @Test
+    public void merge() {
+        // 重叠
+        assertRanges("bytes=0-50,20-99", 0, 99);
+        // 相邻
+        assertRanges("bytes=0-9,10-19,20-29", 0, 29);
+        // 包含
+        assertRanges("bytes=0-999,10-19,-1", 0, 999);
+        assertRanges("bytes=500-,0-9,400-600", 0, 9, 400, 999);
+    }
+
+    @Test
+    public void limit() {
+        StringBuilder sb = new StringBuilder("bytes=");
+        for (int i = 0; i < 17; i++) {
+            sb.append(i * 20).append('-').append(i * 20 + 9).append(',');
+        }
+        // 段数过多时返回整个文件
+        assertTrue(FileAction.parseRanges(sb.toString(), LENGTH).isEmpty());
+
+        // 合并后仍为一段的大量重复范围同样拒绝
+        assertTrue(FileAction.parseRanges("bytes=" + "0-1,".repeat(1000), LENGTH).isEmpty());
+    }
+
+    private static void assertRanges(String rangeHeader, long... expected) {
+        List<long[]> ranges = FileAction.parseRanges(rangeHeader, LENGTH);
+        assertNotNull(ranges);
+        assertEquals(expected.length / 2, ranges.size(), rangeHeader);
+        for (int i = 0; i < ranges.size(); i++) {
+            assertArrayEquals(new long[]{expected[i * 2], expected[i * 2 + 1]}, ranges.get(i), rangeHeader);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ani.rss.benchmark;
+
+import ani.rss.commons.GsonStatic;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.NumberUtil;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * 运行基准测试, 并与基线对比
+ * <p>
+ * 参数与 JMH 相同, 另外支持:
+ * <pre>
+ * -baseline 文件    与之前的结果 (JSON) 对比, 变慢超过阈值时退出码为 1
+ * -threshold 百分比 阈值, 默认 10
+ * </pre>
+ * 结果默认写入 jmh-result.json, 可用 -rff 指定
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>();
+        File baseline = null;
+        double threshold = 10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-baseline" -> baseline = new File(args[++i]);
+                case "-threshold" -> threshold = Double.parseDouble(args[++i]);
+                default -> jmhArgs.add(args[i]);
+            }
+        }
+
+        CommandLineOptions commandLineOptions = new CommandLineOptions(jmhArgs.toArray(String[]::new));
+        String result = commandLineOptions.getResult().orElse("jmh-result.json");
+        Options options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .resultFormat(commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(result)
+                .build();
+        new Runner(options).run();
+
+        if (Objects.isNull(baseline)) {
+            return;
+        }
+        if (!compare(baseline, new File(result), threshold)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 对比两次结果
+     *
+     * @param baseline  基线
+     * @param current   本次
+     * @param threshold 阈值 (百分比)
+     * @return 是否没有变慢超过阈值
+     */
+    public static boolean compare(File baseline, File current, double threshold) {
+        Map<String, JsonObject> baselineMap = read(baseline);
+        Map<String, JsonObject> currentMap = read(current);
+
+        boolean ok = true;
+        System.out.println();
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, JsonObject> entry : currentMap.entrySet()) {
+            JsonObject base = baselineMap.get(entry.getKey());
+            if (Objects.isNull(base)) {
+                System.out.printf("%-70s %14s %14s %9s%n", entry.getKey(), "-", score(entry.getValue()), "new");
+                continue;
+            }
+            double baseScore = base.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+            double currentScore = entry.getValue().getAsJsonObject("primaryMetric").get("score").getAsDouble();
+            // 吞吐量越大越好, 其余为耗时越小越好
+            boolean throughput = "thrpt".equals(entry.getValue().get("mode").getAsString());
+            double slower = throughput ? baseScore / currentScore : currentScore / baseScore;
+            double change = (slower - 1) * 100;
+            boolean regression = change > threshold;
+            if (regression) {
+                ok = false;
+            }
+            System.out.printf("%-70s %14s %14s %8s%%%s%n", entry.getKey(),
+                    score(base), score(entry.getValue()),
+                    NumberUtil.decimalFormat("+0.0;-0.0", change), regression ? " !" : "");
+        }
+        System.out.println(ok ? "No regression" : "Regression over " + threshold + "%");
+        return ok;
+    }
+
+    private static String score(JsonObject jsonObject) {
+        JsonObject primaryMetric = jsonObject.getAsJsonObject("primaryMetric");
+        return NumberUtil.decimalFormat("0.###", primaryMetric.get("score").getAsDouble())
+                + " " + primaryMetric.get("scoreUnit").getAsString();
+    }
+
+    /**
+     * 读取 JMH 的 JSON 结果, key 为 方法名 + 参数
+     */
+    private static Map<String, JsonObject> read(File file) {
+        Map<String, JsonObject> map = new TreeMap<>();
+        JsonArray array = GsonStatic.fromJson(FileUtil.readUtf8String(file), JsonArray.class);
+        for (JsonElement element : array) {
+            JsonObject jsonObject = element.getAsJsonObject();
+            StringBuilder key = new StringBuilder(jsonObject.get("benchmark").getAsString()
+                    .replace("ani.rss.benchmark.", ""));
+            if (jsonObject.has("params")) {
+                new TreeMap<>(jsonObject.getAsJsonObject("params").asMap())
+                        .forEach((k, v) -> key.append(' ').append(k).append('=').append(v.getAsString()));
+            }
+            map.put(key.toString(), jsonObject);
+        }
+        return map;
+    }
+}
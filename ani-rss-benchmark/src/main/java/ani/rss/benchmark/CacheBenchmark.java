@@ -0,0 +1,79 @@
+package ani.rss.benchmark;
+
+import ani.rss.commons.CacheUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存并发读写
+ * <p>
+ * read 为多线程只读; mixed 为 3 个线程读 1 个线程写, 写入的 key 多于容量, 会触发淘汰
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheBenchmark {
+    /**
+     * 与 BGM/TMDB 缓存相同的命名空间形式
+     */
+    private static final String PREFIX = "benchmark:";
+
+    private static final int KEYS = 4096;
+
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = PREFIX + i;
+        }
+        CacheUtils.setCapacity("benchmark", KEYS / 4);
+        for (int i = 0; i < KEYS / 4; i++) {
+            CacheUtils.put(keys[i], i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+
+        @Setup
+        public void setup() {
+            index = (int) (Thread.currentThread().getId() * 31 % KEYS);
+        }
+
+        private int next() {
+            int i = index;
+            index = i + 1 == KEYS ? 0 : i + 1;
+            return i;
+        }
+    }
+
+    @Benchmark
+    @Group("read")
+    @GroupThreads(4)
+    public Object read(Cursor cursor) {
+        // 热点集中在前 1/4, 与容量一致
+        return CacheUtils.get(keys[cursor.next() & (KEYS / 4 - 1)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Object mixedGet(Cursor cursor) {
+        return CacheUtils.get(keys[cursor.next()]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedPut(Cursor cursor) {
+        int i = cursor.next();
+        CacheUtils.put(keys[i], i, TimeUnit.MINUTES.toMillis(10));
+    }
+}
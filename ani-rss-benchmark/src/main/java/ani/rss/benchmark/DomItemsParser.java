@@ -0,0 +1,154 @@
+package ani.rss.benchmark;
+
+import ani.rss.entity.Item;
+import ani.rss.enums.StringEnum;
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.date.DateTime;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.*;
+import org.w3c.dom.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 改为 StAX 之前基于 DOM 的 RSS 解析, 作为 ItemsParser 的对照
+ * <p>
+ * 取自原 ItemsUtil.getItems 的解析部分, 不含过滤与重命名
+ */
+public class DomItemsParser {
+
+    /**
+     * 解析 RSS
+     *
+     * @param xml     RSS 内容
+     * @param newItem 模板
+     * @return 视频列表, 顺序与 RSS 相反 (旧的在前)
+     */
+    public static List<Item> parse(String xml, Item newItem) {
+        List<Item> items = new ArrayList<>();
+
+        Assert.notBlank(xml, "xml is blank");
+        boolean isXml = StrUtil.startWith(xml, '<');
+        Assert.isTrue(isXml, "xml error");
+
+        Document document = XmlUtil.readXML(xml);
+        Node channel = document.getElementsByTagName("channel").item(0);
+        NodeList childNodes = channel.getChildNodes();
+
+        for (int i = childNodes.getLength() - 1; i >= 0; i--) {
+            Node item = childNodes.item(i);
+            String nodeName = item.getNodeName();
+            if (!nodeName.equals("item")) {
+                continue;
+            }
+            String itemTitle = "";
+            String torrent = "";
+            String length = "";
+            String infoHash = "";
+
+            String size = "0MB";
+
+            DateTime pubDate = null;
+
+            NodeList itemChildNodes = item.getChildNodes();
+            for (int j = 0; j < itemChildNodes.getLength(); j++) {
+                Node itemChild = itemChildNodes.item(j);
+                String itemChildNodeName = itemChild.getNodeName();
+                if (itemChildNodeName.equals("title")) {
+                    itemTitle = itemChild.getTextContent();
+                }
+
+                if (itemChildNodeName.equals("enclosure")) {
+                    NamedNodeMap attributes = itemChild.getAttributes();
+                    String url = attributes.getNamedItem("url").getNodeValue();
+                    length = Optional.of(attributes)
+                            .map(it -> it.getNamedItem("length"))
+                            .map(Node::getNodeValue)
+                            .filter(NumberUtil::isLong)
+                            .orElse("1");
+
+                    if (ReUtil.contains(StringEnum.MAGNET_REG, url)) {
+                        torrent = url;
+                        infoHash = ReUtil.get(StringEnum.MAGNET_REG, url, 1);
+                    } else {
+                        torrent = url;
+                        infoHash = FileUtil.mainName(torrent);
+                    }
+                }
+
+                if ("guid".equals(itemChildNodeName)) {
+                    if (ReUtil.isMatch("^([a-z]|[0-9])+$", itemChild.getTextContent())) {
+                        infoHash = itemChild.getTextContent();
+                    }
+                }
+
+                if ("nyaa:infoHash".equals(itemChildNodeName)) {
+                    infoHash = itemChild.getTextContent();
+                }
+                if (itemChildNodeName.equals("nyaa:size")) {
+                    size = itemChild.getTextContent();
+                }
+
+                if (itemChildNodeName.equals("pubDate")) {
+                    try {
+                        pubDate = DateUtil.parse(itemChild.getTextContent(), DatePattern.HTTP_DATETIME_PATTERN);
+                    } catch (Exception ignored) {
+                    }
+                }
+
+                if (itemChildNodeName.equals("torrent")) {
+                    try {
+                        String textContent = XmlUtil.getElement((Element) itemChild, "pubDate")
+                                .getTextContent();
+                        textContent = textContent.replaceAll("\\.\\d+$", "");
+                        pubDate = DateUtil.parse(textContent, DatePattern.UTC_SIMPLE_PATTERN);
+                    } catch (Exception ignored) {
+                    }
+                }
+
+                if (itemChildNodeName.equals("link")) {
+                    String link = itemChild.getTextContent();
+                    if (!link.endsWith(".torrent")) {
+                        continue;
+                    }
+                    torrent = link;
+                }
+
+            }
+
+            if (StrUtil.isBlank(torrent)) {
+                continue;
+            }
+
+            try {
+                if (StrUtil.isNotBlank(length) && size.equals("0MB")) {
+                    Double l = Long.parseLong(length) / 1024.0 / 1024;
+                    size = NumberUtil.decimalFormat("0.00", l) + "MB";
+                }
+            } catch (Exception ignored) {
+            }
+
+            if (StrUtil.isNotBlank(infoHash)) {
+                infoHash = infoHash.toLowerCase();
+                infoHash = URLUtil.decode(infoHash);
+            }
+
+            Item addNewItem = ObjectUtil.clone(newItem);
+
+            addNewItem
+                    .setEpisode(1.0)
+                    .setTitle(itemTitle)
+                    .setReName(itemTitle)
+                    .setTorrent(torrent)
+                    .setInfoHash(infoHash)
+                    .setSize(size)
+                    .setPubDate(pubDate);
+            items.add(addNewItem);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,41 @@
+package ani.rss.benchmark;
+
+import ani.rss.entity.Ani;
+import ani.rss.service.DownloadService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下载位置: cached 为同一订阅重复获取, uncached 每次都是不同的订阅 (数量超过缓存容量)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownloadPathBenchmark {
+    private Ani ani;
+    private List<Ani> aniList;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        aniList = Fixtures.aniList(8192);
+        ani = aniList.get(0);
+    }
+
+    @Benchmark
+    public String cached() {
+        return DownloadService.getDownloadPath(ani);
+    }
+
+    @Benchmark
+    public String uncached() {
+        int i = index;
+        index = i + 1 == aniList.size() ? 0 : i + 1;
+        return DownloadService.getDownloadPath(aniList.get(i));
+    }
+}
@@ -0,0 +1,190 @@
+package ani.rss.benchmark;
+
+import ani.rss.entity.Ani;
+import ani.rss.util.other.AniUtil;
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.date.DateTime;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.XmlUtil;
+import cn.hutool.crypto.SecureUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * 基准测试数据
+ * <p>
+ * 以 benchmark/titles.tsv 中的标题为语料, 按 Mikan、nyaa、dmhy 的 RSS 格式生成订阅内容。
+ * 不依赖网络与随机数, 每次生成的内容相同
+ */
+public class Fixtures {
+    public static final String MIKAN = "mikan";
+    public static final String NYAA = "nyaa";
+    public static final String DMHY = "dmhy";
+
+    /**
+     * 每个标题生成的集数
+     */
+    private static final int EPISODES = 24;
+
+    private static final long BASE_TIME = DateUtil.parse("2024-01-01 00:00:00").getTime();
+
+    private static final List<Title> TITLES = loadTitles();
+
+    /**
+     * 站点的全部标题
+     *
+     * @param site 站点, 为 null 时返回全部
+     * @return 标题
+     */
+    public static List<Title> titles(String site) {
+        return TITLES.stream()
+                .filter(it -> Objects.isNull(site) || it.site().equals(site))
+                .toList();
+    }
+
+    /**
+     * 生成 RSS
+     *
+     * @param site 站点
+     * @param size item 数量
+     * @return RSS
+     */
+    public static String feed(String site, int size) {
+        List<Title> titles = titles(site);
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        switch (site) {
+            case NYAA -> sb.append("<rss xmlns:atom=\"http://www.w3.org/2005/Atom\" xmlns:nyaa=\"https://nyaa.si/xmlns/nyaa\" version=\"2.0\">\n")
+                    .append("<channel><title>Nyaa - Home - Torrent File RSS</title><link>https://nyaa.si/</link>\n");
+            case DMHY -> sb.append("<rss version=\"2.0\" xmlns:content=\"http://purl.org/rss/1.0/modules/content/\">\n")
+                    .append("<channel><title><![CDATA[動漫花園資源網]]></title><link>http://share.dmhy.org</link>\n");
+            default -> sb.append("<rss version=\"2.0\">\n")
+                    .append("<channel><title>Mikan Project</title><link>http://mikanani.me/RSS/Classic</link>\n");
+        }
+        // 新的在前
+        for (int i = size - 1; i >= 0; i--) {
+            Title title = titles.get(i % titles.size());
+            int episode = i / titles.size() % EPISODES + 1;
+            String name = title.format(episode);
+            String hash = SecureUtil.sha1(site + i);
+            DateTime pubDate = DateUtil.date(BASE_TIME + i * 600_000L);
+            long length = 200L * 1024 * 1024 + (i % 97) * 13L * 1024 * 1024;
+            switch (site) {
+                case NYAA -> appendNyaa(sb, i, name, hash, pubDate, length);
+                case DMHY -> appendDmhy(sb, i, name, hash, pubDate);
+                default -> appendMikan(sb, name, hash, pubDate, length);
+            }
+        }
+        sb.append("</channel>\n</rss>\n");
+        return sb.toString();
+    }
+
+    /**
+     * 与标题对应的订阅
+     *
+     * @param title 标题
+     * @return 订阅
+     */
+    public static Ani ani(Title title) {
+        return AniUtil.createAni()
+                .setTitle(title.ani())
+                .setSeason(1)
+                .setYear(2024)
+                .setMonth(1)
+                .setUrl("https://mikanani.me/RSS/Bangumi?bangumiId=" + Math.abs(title.ani().hashCode()));
+    }
+
+    /**
+     * 生成订阅列表
+     *
+     * @param size 数量
+     * @return 订阅
+     */
+    public static List<Ani> aniList(int size) {
+        List<Ani> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Title title = TITLES.get(i % TITLES.size());
+            list.add(ani(title)
+                    .setId(SecureUtil.md5("ani" + i))
+                    .setTitle(title.ani() + " " + (i / TITLES.size() + 1))
+                    .setSeason(i % 3 + 1)
+                    .setMonth(i % 12 + 1)
+                    .setSubgroup(StrUtil.subBetween(title.template(), "[", "]"))
+                    .setUrl("https://mikanani.me/RSS/Bangumi?bangumiId=" + (3000 + i)));
+        }
+        return list;
+    }
+
+    private static void appendMikan(StringBuilder sb, String name, String hash, DateTime pubDate, long length) {
+        String title = XmlUtil.escape(name);
+        sb.append("<item><guid isPermaLink=\"false\">").append(title).append("</guid>")
+                .append("<link>https://mikanani.me/Home/Episode/").append(hash).append("</link>")
+                .append("<title>").append(title).append("</title>")
+                .append("<description>").append(title).append("</description>")
+                .append("<torrent xmlns=\"https://mikanani.me/0.1/\"><link>https://mikanani.me/Home/Episode/").append(hash).append("</link>")
+                .append("<contentLength>").append(length).append("</contentLength>")
+                .append("<pubDate>").append(DateUtil.format(pubDate, "yyyy-MM-dd'T'HH:mm:ss.SSS")).append("</pubDate></torrent>")
+                .append("<enclosure type=\"application/x-bittorrent\" length=\"").append(length)
+                .append("\" url=\"https://mikanani.me/Download/20240101/").append(hash).append(".torrent\" /></item>\n");
+    }
+
+    private static void appendNyaa(StringBuilder sb, int i, String name, String hash, DateTime pubDate, long length) {
+        sb.append("<item><title>").append(XmlUtil.escape(name)).append("</title>")
+                .append("<link>https://nyaa.si/download/").append(1800000 + i).append(".torrent</link>")
+                .append("<guid isPermaLink=\"true\">https://nyaa.si/view/").append(1800000 + i).append("</guid>")
+                .append("<pubDate>").append(httpDate(pubDate)).append("</pubDate>")
+                .append("<nyaa:seeders>").append(i % 500).append("</nyaa:seeders>")
+                .append("<nyaa:leechers>").append(i % 17).append("</nyaa:leechers>")
+                .append("<nyaa:downloads>").append(i * 7 % 9000).append("</nyaa:downloads>")
+                .append("<nyaa:infoHash>").append(hash).append("</nyaa:infoHash>")
+                .append("<nyaa:categoryId>1_2</nyaa:categoryId><nyaa:category>Anime - English-translated</nyaa:category>")
+                .append("<nyaa:size>").append(String.format(Locale.ROOT, "%.1f MiB", length / 1024.0 / 1024)).append("</nyaa:size>")
+                .append("<nyaa:comments>0</nyaa:comments><nyaa:trusted>Yes</nyaa:trusted><nyaa:remake>No</nyaa:remake>")
+                .append("<description><![CDATA[<a href=\"https://nyaa.si/view/").append(1800000 + i).append("\">#").append(1800000 + i)
+                .append("</a> | ").append(name).append(" | Anime - English-translated ]]></description></item>\n");
+    }
+
+    private static void appendDmhy(StringBuilder sb, int i, String name, String hash, DateTime pubDate) {
+        sb.append("<item><title><![CDATA[").append(name).append("]]></title>")
+                .append("<link>http://share.dmhy.org/topics/view/").append(660000 + i).append("_").append(hash, 0, 8).append(".html</link>")
+                .append("<pubDate>").append(httpDate(pubDate)).append("</pubDate>")
+                .append("<description><![CDATA[<p><img src=\"https://example.invalid/").append(hash).append(".jpg\" /></p><p>").append(name).append("</p>]]></description>")
+                .append("<enclosure url=\"magnet:?xt=urn:btih:").append(hash).append("&amp;dn=").append(XmlUtil.escape(name))
+                .append("&amp;tr=http%3A%2F%2Ft.nyaatracker.com%2Fannounce\" length=\"1\" type=\"application/x-bittorrent\"></enclosure>")
+                .append("<author><![CDATA[dmhy]]></author>")
+                .append("<guid isPermaLink=\"true\">http://share.dmhy.org/topics/view/").append(660000 + i).append(".html</guid>")
+                .append("<category domain=\"http://share.dmhy.org/topics/list/sort_id/2\"><![CDATA[動畫]]></category></item>\n");
+    }
+
+    private static String httpDate(DateTime dateTime) {
+        return DateUtil.format(dateTime, DatePattern.HTTP_DATETIME_FORMAT);
+    }
+
+    private static List<Title> loadTitles() {
+        List<Title> list = new ArrayList<>();
+        for (String line : StrUtil.split(ResourceUtil.readUtf8Str("benchmark/titles.tsv"), '\n', true, true)) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            List<String> split = StrUtil.split(line, '\t');
+            list.add(new Title(split.get(0), split.get(1), split.get(2)));
+        }
+        return List.copyOf(list);
+    }
+
+    /**
+     * @param site     站点
+     * @param ani      番剧
+     * @param template 标题, {ep} 为集数
+     */
+    public record Title(String site, String ani, String template) {
+        public String format(int episode) {
+            return template.replace("{ep}", String.format("%02d", episode));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ani.rss.benchmark;
+
+import ani.rss.commons.GsonStatic;
+import ani.rss.entity.Ani;
+import ani.rss.util.other.AniUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订阅列表的序列化与反序列化 (ani.v2.json)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GsonBenchmark {
+    @Param({"1000"})
+    public int size;
+
+    private String json;
+
+    @Setup
+    public void setup() {
+        AniUtil.ANI_LIST.clear();
+        AniUtil.ANI_LIST.addAll(Fixtures.aniList(size));
+        json = GsonStatic.toJson(AniUtil.ANI_LIST);
+    }
+
+    @TearDown
+    public void tearDown() {
+        AniUtil.ANI_LIST.clear();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return GsonStatic.toJson(AniUtil.ANI_LIST);
+    }
+
+    @Benchmark
+    public List<Ani> fromJson() {
+        return GsonStatic.fromJsonList(json, Ani.class);
+    }
+}
@@ -0,0 +1,56 @@
+package ani.rss.benchmark;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.Item;
+import ani.rss.util.other.ItemsParser;
+import ani.rss.util.other.ItemsUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RSS 解析: 只解析 XML 与完整的 解析 → 过滤 → 重命名
+ * <p>
+ * parseDom 为改用 StAX 之前的 DOM 解析, 与 parse 对照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemsBenchmark {
+    @Param({Fixtures.MIKAN, Fixtures.NYAA, Fixtures.DMHY})
+    public String site;
+
+    @Param({"20", "200", "2000"})
+    public int size;
+
+    private String xml;
+    private Ani ani;
+    private Item newItem;
+
+    @Setup
+    public void setup() {
+        xml = Fixtures.feed(site, size);
+        Fixtures.Title title = Fixtures.titles(site).get(0);
+        ani = Fixtures.ani(title);
+        newItem = new Item().setSubgroup("未知字幕组");
+    }
+
+    @Benchmark
+    public List<Item> parse() {
+        return ItemsParser.parse(xml, newItem);
+    }
+
+    @Benchmark
+    public List<Item> parseDom() {
+        return DomItemsParser.parse(xml, newItem);
+    }
+
+    @Benchmark
+    public List<Item> getItems() {
+        return ItemsUtil.getItems(ani, xml, newItem);
+    }
+}
@@ -0,0 +1,47 @@
+package ani.rss.benchmark;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.Item;
+import ani.rss.util.other.RenameUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重命名: 依次处理语料中的全部标题 (各取 4 集), 结果为单个标题的平均耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenameBenchmark {
+    private static final int[] EPISODES = {1, 5, 12, 24};
+
+    private final List<Ani> aniList = new ArrayList<>();
+    private final List<Item> items = new ArrayList<>();
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        for (Fixtures.Title title : Fixtures.titles(null)) {
+            Ani ani = Fixtures.ani(title);
+            for (int episode : EPISODES) {
+                aniList.add(ani);
+                items.add(new Item()
+                        .setTitle(title.format(episode))
+                        .setSubgroup("未知字幕组"));
+            }
+        }
+    }
+
+    @Benchmark
+    public Boolean rename() {
+        int i = index;
+        index = i + 1 == items.size() ? 0 : i + 1;
+        return RenameUtil.rename(aniList.get(i), items.get(i));
+    }
+}
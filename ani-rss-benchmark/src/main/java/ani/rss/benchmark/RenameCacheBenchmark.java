@@ -0,0 +1,81 @@
+package ani.rss.benchmark;
+
+import ani.rss.util.basic.RenameCacheUtil;
+import cn.hutool.crypto.SecureUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重命名缓存
+ * <p>
+ * hotGet 命中内存; coldGet 依次读取数量超过内存容量的 key, 每次都会查询数据库;
+ * batchedPut 为写入一批后立即写入数据库, 结果为单个 key 的平均耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenameCacheBenchmark {
+    /**
+     * 大于内存缓存的容量 (2048)
+     */
+    private static final int KEYS = 8192;
+
+    /**
+     * 与 RenameCacheUtil 的批量写入数量一致
+     */
+    private static final int BATCH = 128;
+
+    private String[] keys;
+    private String[] values;
+    private int index = 0;
+    private int batch = 0;
+
+    @Setup
+    public void setup() {
+        List<Fixtures.Title> titles = Fixtures.titles(null);
+        keys = new String[KEYS];
+        values = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            // 与下载器的任务 id 相同的形式
+            keys[i] = SecureUtil.sha1("rename" + i);
+            values[i] = titles.get(i % titles.size()).format(i % 24 + 1);
+            RenameCacheUtil.put(keys[i], values[i]);
+        }
+        RenameCacheUtil.flush();
+        // 预热热点 key
+        RenameCacheUtil.get(keys[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RenameCacheUtil.flush();
+    }
+
+    @Benchmark
+    public String hotGet() {
+        return RenameCacheUtil.get(keys[0]);
+    }
+
+    @Benchmark
+    public String coldGet() {
+        int i = index;
+        index = i + 1 == KEYS ? 0 : i + 1;
+        return RenameCacheUtil.get(keys[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void batchedPut() {
+        int offset = batch;
+        batch = offset + BATCH >= KEYS ? 0 : offset + BATCH;
+        for (int i = offset; i < offset + BATCH; i++) {
+            RenameCacheUtil.put(keys[i], values[i]);
+        }
+        RenameCacheUtil.flush();
+    }
+}
@@ -1,41 +1,283 @@
 package ani.rss.commons;
 
-import cn.hutool.cache.CacheUtil;
-import cn.hutool.cache.impl.FIFOCache;
-import lombok.Synchronized;
-import lombok.extern.slf4j.Slf4j;
+import lombok.Data;
+import lombok.experimental.Accessors;
 
-@Slf4j
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存
+ * <p>
+ * 按 key 的前缀 (第一个 : 或 # 之前) 划分命名空间, 每个命名空间独立容量与统计,
+ * 批量的 BGM/TMDB 数据不会挤掉登录、代理等常用项。
+ * 容量满时先清理过期项, 再淘汰访问频率最低的项, 频率相同时淘汰最久未访问的
+ */
 public class CacheUtils {
-    static final FIFOCache<Object, Object> CACHE = CacheUtil.newFIFOCache(1024 * 8);
+    /**
+     * 默认容量
+     */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * 每次淘汰的比例
+     */
+    private static final int EVICT_PERCENT = 10;
+
+    private static final Map<String, Integer> CAPACITY_MAP = new ConcurrentHashMap<>(Map.of(
+            "auth_key", 16,
+            "github", 16,
+            "BGM_getEpisodeId", 256,
+            "BGM_getEpisodeTitleMap", 256,
+            "TMDB_getEpisodeTitleMap", 256
+    ));
+
+    private static final Map<String, Namespace> NAMESPACE_MAP = new ConcurrentHashMap<>();
 
-    @Synchronized("CACHE")
     public static <V> V get(Object key) {
-        log.debug("get key [{}]", key);
-        return (V) CACHE.get(key);
+        Namespace namespace = getNamespace(key);
+        Entry entry = namespace.map.get(key);
+        if (Objects.isNull(entry)) {
+            namespace.miss.increment();
+            return null;
+        }
+        if (entry.isExpired()) {
+            namespace.map.remove(key, entry);
+            namespace.miss.increment();
+            return null;
+        }
+        entry.access(namespace);
+        namespace.hit.increment();
+        return (V) entry.value;
     }
 
-    @Synchronized("CACHE")
     public static void put(Object key, Object object) {
-        log.debug("put key [{}]", key);
-        CACHE.put(key, object);
+        put(key, object, 0);
     }
 
-    @Synchronized("CACHE")
     public static void put(Object key, Object object, long timeout) {
-        log.debug("put key [{}] timeout [{}]", key, timeout);
-        CACHE.put(key, object, timeout);
+        Namespace namespace = getNamespace(key);
+        long expireTime = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+        Entry old = namespace.map.put(key, new Entry(object, expireTime));
+        if (Objects.isNull(old) && namespace.map.size() > namespace.capacity) {
+            namespace.evict(key);
+        }
     }
 
-    @Synchronized("CACHE")
     public static boolean containsKey(Object key) {
-        log.debug("contains key [{}]", key);
-        return CACHE.containsKey(key);
+        Namespace namespace = getNamespace(key);
+        Entry entry = namespace.map.get(key);
+        if (Objects.isNull(entry)) {
+            return false;
+        }
+        if (entry.isExpired()) {
+            namespace.map.remove(key, entry);
+            return false;
+        }
+        return true;
     }
 
-    @Synchronized("CACHE")
     public static void remove(Object key) {
-        log.debug("remove key [{}]", key);
-        CACHE.remove(key);
+        getNamespace(key).map.remove(key);
+    }
+
+    /**
+     * 设置命名空间容量
+     *
+     * @param name     命名空间
+     * @param capacity 容量
+     */
+    public static void setCapacity(String name, int capacity) {
+        CAPACITY_MAP.put(name, capacity);
+        Namespace namespace = NAMESPACE_MAP.get(name);
+        if (Objects.nonNull(namespace)) {
+            namespace.capacity = capacity;
+        }
+    }
+
+    /**
+     * 获取各命名空间的统计
+     *
+     * @return 统计
+     */
+    public static List<CacheStats> stats() {
+        List<CacheStats> list = new ArrayList<>();
+        for (Map.Entry<String, Namespace> entry : NAMESPACE_MAP.entrySet()) {
+            Namespace namespace = entry.getValue();
+            list.add(new CacheStats()
+                    .setNamespace(entry.getKey())
+                    .setSize(namespace.map.size())
+                    .setCapacity(namespace.capacity)
+                    .setHit(namespace.hit.sum())
+                    .setMiss(namespace.miss.sum())
+                    .setEviction(namespace.eviction.sum()));
+        }
+        list.sort(Comparator.comparing(CacheStats::getNamespace));
+        return list;
+    }
+
+    /**
+     * 获取 key 的命名空间
+     *
+     * @param key key
+     * @return 命名空间
+     */
+    static String getNamespaceName(Object key) {
+        if (!(key instanceof String s)) {
+            return "default";
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == ':' || c == '#') {
+                return s.substring(0, i);
+            }
+        }
+        return s;
+    }
+
+    private static Namespace getNamespace(Object key) {
+        String name = getNamespaceName(key);
+        Namespace namespace = NAMESPACE_MAP.get(name);
+        if (Objects.nonNull(namespace)) {
+            return namespace;
+        }
+        return NAMESPACE_MAP.computeIfAbsent(name, k -> new Namespace(CAPACITY_MAP.getOrDefault(k, DEFAULT_CAPACITY)));
+    }
+
+    private static class Namespace {
+        private final Map<Object, Entry> map = new ConcurrentHashMap<>();
+        private final LongAdder hit = new LongAdder();
+        private final LongAdder miss = new LongAdder();
+        private final LongAdder eviction = new LongAdder();
+
+        /**
+         * 访问次数, 达到容量的 10 倍后所有频率减半, 使旧的热点逐渐失效
+         */
+        private final AtomicInteger access = new AtomicInteger();
+
+        private volatile int capacity;
+
+        private Namespace(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * 清理过期项, 仍超出容量时淘汰访问频率最低的一批
+         *
+         * @param key 触发淘汰的新 key, 不会被淘汰
+         */
+        private synchronized void evict(Object key) {
+            if (map.size() <= capacity) {
+                return;
+            }
+            List<Map.Entry<Object, Entry>> entries = new ArrayList<>(map.entrySet());
+            int removed = 0;
+            for (Map.Entry<Object, Entry> entry : entries) {
+                if (entry.getValue().isExpired() && map.remove(entry.getKey(), entry.getValue())) {
+                    removed++;
+                }
+            }
+            int size = map.size();
+            if (size > capacity) {
+                int count = Math.max(size - capacity, capacity * EVICT_PERCENT / 100);
+                entries.removeIf(entry -> entry.getValue().isExpired() || entry.getKey().equals(key));
+                // 频率与访问时间在排序期间仍会被读取线程修改, 先取快照再排序
+                int[] frequencies = new int[entries.size()];
+                long[] times = new long[entries.size()];
+                Integer[] sorted = new Integer[entries.size()];
+                for (int i = 0; i < sorted.length; i++) {
+                    Entry entry = entries.get(i).getValue();
+                    frequencies[i] = entry.frequency;
+                    times[i] = entry.time;
+                    sorted[i] = i;
+                }
+                Arrays.sort(sorted, Comparator.<Integer>comparingInt(i -> frequencies[i])
+                        .thenComparingLong(i -> times[i]));
+                for (int i = 0; i < count && i < sorted.length; i++) {
+                    Map.Entry<Object, Entry> entry = entries.get(sorted[i]);
+                    if (map.remove(entry.getKey(), entry.getValue())) {
+                        removed++;
+                    }
+                }
+            }
+            eviction.add(removed);
+        }
+
+        private void age() {
+            for (Entry entry : map.values()) {
+                entry.frequency = entry.frequency >> 1;
+            }
+        }
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long expireTime;
+        private volatile int frequency = 0;
+
+        /**
+         * 写入或最后访问的时间, 用于频率相同时的淘汰顺序
+         */
+        private volatile long time = System.nanoTime();
+
+        private Entry(Object value, long expireTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+
+        private boolean isExpired() {
+            return expireTime > 0 && System.currentTimeMillis() > expireTime;
+        }
+
+        private void access(Namespace namespace) {
+            time = System.nanoTime();
+            if (frequency < 15) {
+                // 只需要大致的频率, 并发下丢失一次计数也无妨
+                frequency++;
+            }
+            if (namespace.access.incrementAndGet() >= namespace.capacity * 10) {
+                namespace.access.set(0);
+                namespace.age();
+            }
+        }
+    }
+
+    /**
+     * 命名空间统计
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class CacheStats {
+        /**
+         * 命名空间
+         */
+        private String namespace;
+
+        /**
+         * 当前数量
+         */
+        private Integer size;
+
+        /**
+         * 容量
+         */
+        private Integer capacity;
+
+        /**
+         * 命中
+         */
+        private Long hit;
+
+        /**
+         * 未命中
+         */
+        private Long miss;
+
+        /**
+         * 淘汰
+         */
+        private Long eviction;
     }
 }
@@ -51,4 +51,8 @@ public class GsonStatic {
         return GSON.toJson(obj);
     }
 
+    public static JsonElement toJsonTree(Object obj) {
+        return GSON.toJsonTree(obj);
+    }
+
 }
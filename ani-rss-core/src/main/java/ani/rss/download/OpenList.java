@@ -7,6 +7,7 @@ import ani.rss.entity.*;
 import ani.rss.enums.NotificationStatusEnum;
 import ani.rss.enums.StringEnum;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.RateLimiter;
 import ani.rss.util.other.NotificationUtil;
 import ani.rss.util.other.TorrentUtil;
 import cn.hutool.core.collection.ListUtil;
@@ -666,9 +667,9 @@ public class OpenList implements BaseDownload {
      * @return
      */
     public synchronized HttpRequest postApi(String action) {
-        ThreadUtil.sleep(API_MIN_INTERVAL_MS);
         String host = config.getDownloadToolHost();
         String password = config.getDownloadToolPassword();
+        RateLimiter.acquire("OpenList:" + host, 1000.0 / API_MIN_INTERVAL_MS, 1);
         return HttpReq.post(host + "/api/" + action)
                 .timeout(API_CALL_TIMEOUT_MS)
                 .header(Header.AUTHORIZATION, password);
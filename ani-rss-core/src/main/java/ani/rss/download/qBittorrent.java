@@ -37,6 +37,18 @@ import java.util.*;
 public class qBittorrent implements BaseDownload {
     private Config config;
 
+    /**
+     * maindata 的响应 id, 为 0 时全量同步
+     */
+    private long rid = 0;
+
+    /**
+     * 任务的本地镜像 hash -> 任务信息
+     */
+    private final Map<String, JsonObject> mirror = new HashMap<>();
+
+    private String mirrorHost = "";
+
     /**
      * 获取对应任务的文件列表
      *
@@ -222,8 +234,34 @@ public class qBittorrent implements BaseDownload {
     }
 
     @Override
-    public List<TorrentsInfo> getTorrentsInfos() {
+    public synchronized List<TorrentsInfo> getTorrentsInfos() {
         String host = config.getDownloadToolHost();
+        if (!host.equals(mirrorHost)) {
+            // 下载器地址变化, 重新全量同步
+            mirrorHost = host;
+            resetMirror();
+        }
+        try {
+            return HttpReq.get(host + "/api/v2/sync/maindata")
+                    .form("rid", rid)
+                    .thenFunction(res -> {
+                        HttpReq.assertStatus(res);
+                        JsonObject maindata = GsonStatic.fromJson(res.body(), JsonObject.class);
+                        syncMirror(maindata);
+
+                        List<TorrentsInfo> torrentsInfoList = new ArrayList<>();
+                        for (Map.Entry<String, JsonObject> entry : mirror.entrySet()) {
+                            TorrentsInfo torrentsInfo = toTorrentsInfo(entry.getKey(), entry.getValue());
+                            if (Objects.nonNull(torrentsInfo)) {
+                                torrentsInfoList.add(torrentsInfo);
+                            }
+                        }
+                        return torrentsInfoList;
+                    });
+        } catch (Exception e) {
+            log.warn("增量同步任务列表失败, 将获取完整列表 {}", ExceptionUtils.getMessage(e));
+            resetMirror();
+        }
         try {
             return HttpReq.get(host + "/api/v2/torrents/info")
                     .thenFunction(res -> {
@@ -231,50 +269,9 @@ public class qBittorrent implements BaseDownload {
                         JsonArray jsonElements = GsonStatic.fromJson(res.body(), JsonArray.class);
                         for (JsonElement jsonElement : jsonElements) {
                             JsonObject jsonObject = jsonElement.getAsJsonObject();
-                            String tags = jsonObject.get("tags").getAsString();
-
-                            if (StrUtil.isBlank(tags)) {
-                                continue;
-                            }
-
                             String hash = jsonObject.get("hash").getAsString();
-                            String name = jsonObject.get("name").getAsString();
-                            String savePath = jsonObject.get("save_path").getAsString();
-                            long completed = jsonObject.get("completed").getAsLong();
-                            long size = jsonObject.get("size").getAsLong();
-                            JsonElement state = jsonObject.get("state");
-
-                            List<String> tagList = StrUtil.split(tags, ",", true, true);
-
-                            TorrentsInfo torrentsInfo = new TorrentsInfo();
-
-                            torrentsInfo.setState(Objects.isNull(state) ?
-                                    TorrentsInfo.State.downloading : EnumUtil.fromString(TorrentsInfo.State.class, state.getAsString(), TorrentsInfo.State.downloading)
-                            );
-
-                            torrentsInfo
-                                    .progress(completed, size)
-                                    .setName(name)
-                                    .setHash(hash)
-                                    .setDownloadDir(FileUtils.getAbsolutePath(savePath))
-                                    .setTags(tagList)
-                                    .setFiles(() ->
-                                            files(torrentsInfo, true, config)
-                                                    .stream()
-                                                    .filter(fileEntity -> fileEntity.getPriority() > 0)
-                                                    .map(FileEntity::getName)
-                                                    .toList());
-                            // 包含标签
-                            if (tagList.contains(TorrentsTags.ANI_RSS.getValue())) {
-                                torrentsInfoList.add(torrentsInfo);
-                                continue;
-                            }
-
-                            JsonElement category = jsonObject.get("category");
-                            if (Objects.isNull(category)) {
-                                continue;
-                            }
-                            if (category.getAsString().equals(TorrentsTags.ANI_RSS.getValue())) {
+                            TorrentsInfo torrentsInfo = toTorrentsInfo(hash, jsonObject);
+                            if (Objects.nonNull(torrentsInfo)) {
                                 torrentsInfoList.add(torrentsInfo);
                             }
                         }
@@ -286,6 +283,103 @@ public class qBittorrent implements BaseDownload {
         return new ArrayList<>();
     }
 
+    /**
+     * 将 maindata 的增量合并到本地镜像
+     *
+     * @param maindata /api/v2/sync/maindata 的响应
+     */
+    private void syncMirror(JsonObject maindata) {
+        JsonElement fullUpdate = maindata.get("full_update");
+        if (Objects.nonNull(fullUpdate) && fullUpdate.getAsBoolean()) {
+            mirror.clear();
+        }
+
+        JsonElement torrents = maindata.get("torrents");
+        if (Objects.nonNull(torrents) && torrents.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> entry : torrents.getAsJsonObject().entrySet()) {
+                JsonObject torrent = mirror.computeIfAbsent(entry.getKey(), k -> new JsonObject());
+                for (Map.Entry<String, JsonElement> field : entry.getValue().getAsJsonObject().entrySet()) {
+                    torrent.add(field.getKey(), field.getValue());
+                }
+            }
+        }
+
+        JsonElement torrentsRemoved = maindata.get("torrents_removed");
+        if (Objects.nonNull(torrentsRemoved) && torrentsRemoved.isJsonArray()) {
+            for (JsonElement hash : torrentsRemoved.getAsJsonArray()) {
+                mirror.remove(hash.getAsString());
+            }
+        }
+
+        rid = maindata.get("rid").getAsLong();
+    }
+
+    private void resetMirror() {
+        rid = 0;
+        mirror.clear();
+    }
+
+    /**
+     * 转换为任务, 不属于 ani-rss 的任务返回 null
+     *
+     * @param hash       hash
+     * @param jsonObject 任务信息
+     * @return 任务
+     */
+    private TorrentsInfo toTorrentsInfo(String hash, JsonObject jsonObject) {
+        String tags = getAsString(jsonObject, "tags");
+
+        if (StrUtil.isBlank(tags)) {
+            return null;
+        }
+
+        String name = getAsString(jsonObject, "name");
+        String savePath = getAsString(jsonObject, "save_path");
+        long completed = jsonObject.get("completed").getAsLong();
+        long size = jsonObject.get("size").getAsLong();
+        JsonElement state = jsonObject.get("state");
+
+        List<String> tagList = StrUtil.split(tags, ",", true, true);
+
+        TorrentsInfo torrentsInfo = new TorrentsInfo();
+
+        torrentsInfo.setState(Objects.isNull(state) ?
+                TorrentsInfo.State.downloading : EnumUtil.fromString(TorrentsInfo.State.class, state.getAsString(), TorrentsInfo.State.downloading)
+        );
+
+        Config config = this.config;
+        torrentsInfo
+                .progress(completed, size)
+                .setName(name)
+                .setHash(hash)
+                .setDownloadDir(FileUtils.getAbsolutePath(savePath))
+                .setTags(tagList)
+                .setFiles(() ->
+                        files(torrentsInfo, true, config)
+                                .stream()
+                                .filter(fileEntity -> fileEntity.getPriority() > 0)
+                                .map(FileEntity::getName)
+                                .toList());
+        // 包含标签
+        if (tagList.contains(TorrentsTags.ANI_RSS.getValue())) {
+            return torrentsInfo;
+        }
+
+        String category = getAsString(jsonObject, "category");
+        if (TorrentsTags.ANI_RSS.getValue().equals(category)) {
+            return torrentsInfo;
+        }
+        return null;
+    }
+
+    private static String getAsString(JsonObject jsonObject, String key) {
+        JsonElement jsonElement = jsonObject.get(key);
+        if (Objects.isNull(jsonElement) || jsonElement.isJsonNull()) {
+            return "";
+        }
+        return jsonElement.getAsString();
+    }
+
     @Override
     public Boolean delete(TorrentsInfo torrentsInfo, Boolean deleteFiles) {
         String host = config.getDownloadToolHost();
@@ -356,7 +450,7 @@ public class qBittorrent implements BaseDownload {
 
         String host = config.getDownloadToolHost();
 
-        Optional<Ani> aniOpt = DownloadService.findAniByDownloadPath(torrentsInfo);
+        Optional<Ani> aniOpt = DownloadService.findAni(torrentsInfo);
 
         if (aniOpt.isEmpty()) {
             log.error("未能获取番剧对象: {}", torrentsInfo.getName());
@@ -144,6 +144,21 @@ public class Config implements Serializable {
      */
     private Integer rssTimeout;
 
+    /**
+     * rss 并发拉取线程数
+     */
+    private Integer rssThreads;
+
+    /**
+     * 同一站点 rss 最大并发数
+     */
+    private Integer rssHostThreads;
+
+    /**
+     * rss 拉取使用虚拟线程 (需要 Java 21+)
+     */
+    private Boolean rssVirtualThread;
+
     /**
      * 文件已下载自动跳过
      */
@@ -204,6 +219,16 @@ public class Config implements Serializable {
      */
     private Boolean debug;
 
+    /**
+     * http 普通接口线程数
+     */
+    private Integer serverThreads;
+
+    /**
+     * http 视频、文件等耗时接口线程数
+     */
+    private Integer serverBulkThreads;
+
     /**
      * 仅启用主rss摸鱼检测
      */
@@ -576,6 +601,21 @@ public class Config implements Serializable {
      */
     private List<NotificationConfig> notificationConfigList;
 
+    /**
+     * 每个通知渠道的队列长度, 超出时丢弃最早的通知
+     */
+    private Integer notificationQueueSize;
+
+    /**
+     * 合并通知
+     */
+    private Boolean notificationDigest;
+
+    /**
+     * 合并通知的等待时间 秒
+     */
+    private Integer notificationDigestSeconds;
+
     /**
      * 添加订阅时自动复制主rss至备用rss
      */
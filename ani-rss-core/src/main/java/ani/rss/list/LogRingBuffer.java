@@ -0,0 +1,137 @@
+package ani.rss.list;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * 用于存放日志的环形缓冲区
+ * <p>
+ * 写入不加锁, 每条日志分配递增的序号, 写满后覆盖最旧的日志。
+ * 写入时只格式化消息 (不保留参数对象), 日期与异常在读取时才格式化
+ */
+public class LogRingBuffer {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Entry> entries;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 清理时的序号, 之前的日志不再返回
+     */
+    private volatile long clearSequence = 0;
+
+    /**
+     * @param capacity 容量, 向上取整为 2 的幂
+     */
+    public LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.entries = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * 写入
+     *
+     * @param event 日志事件
+     */
+    public void add(ILoggingEvent event) {
+        long seq = sequence.incrementAndGet();
+        entries.set((int) (seq & mask), new Entry(seq, event));
+    }
+
+    /**
+     * 读取序号大于 since 的日志
+     *
+     * @param since  序号
+     * @param limit  最多返回的条数 (最新的)
+     * @param mapper 格式化
+     * @return 日志
+     */
+    public <T> List<T> read(long since, int limit, Function<Entry, T> mapper) {
+        long last = sequence.get();
+        long from = Math.max(since, clearSequence) + 1;
+        from = Math.max(from, last - Math.min(limit, capacity) + 1);
+
+        List<T> list = new ArrayList<>((int) Math.max(last - from + 1, 0));
+        for (long seq = from; seq <= last; seq++) {
+            Entry entry = entries.get((int) (seq & mask));
+            if (Objects.isNull(entry) || entry.seq < seq) {
+                // 已分配序号但还未写入, 留到下次读取
+                break;
+            }
+            if (entry.seq > seq) {
+                // 已被覆盖
+                continue;
+            }
+            list.add(mapper.apply(entry));
+        }
+        return list;
+    }
+
+    /**
+     * 清理, 不影响序号
+     */
+    public void clear() {
+        clearSequence = sequence.get();
+    }
+
+    /**
+     * 最新的序号
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Getter
+    public static class Entry {
+        private final long seq;
+        private final long timeStamp;
+        private final String level;
+        private final String loggerName;
+        private final String threadName;
+        private final String message;
+        private final IThrowableProxy throwableProxy;
+
+        /**
+         * 格式化后的结果, 只格式化一次
+         */
+        @Getter(AccessLevel.NONE)
+        private volatile Object formatted;
+
+        private Entry(long seq, ILoggingEvent event) {
+            this.seq = seq;
+            this.timeStamp = event.getTimeStamp();
+            this.level = event.getLevel().toString();
+            this.loggerName = event.getLoggerName();
+            // 线程名需要在当前线程获取
+            this.threadName = event.getThreadName();
+            // 参数可能被修改或引用大对象, 写入时即格式化
+            this.message = event.getFormattedMessage();
+            this.throwableProxy = event.getThrowableProxy();
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T getFormatted(Function<Entry, T> mapper) {
+            Object value = formatted;
+            if (Objects.isNull(value)) {
+                value = mapper.apply(this);
+                formatted = value;
+            }
+            return (T) value;
+        }
+    }
+}
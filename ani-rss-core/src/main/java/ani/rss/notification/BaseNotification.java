@@ -6,18 +6,18 @@ import ani.rss.entity.Config;
 import ani.rss.entity.NotificationConfig;
 import ani.rss.enums.NotificationStatusEnum;
 import ani.rss.enums.StringEnum;
+import ani.rss.other.Template;
 import ani.rss.service.DownloadService;
 import ani.rss.util.other.ConfigUtil;
 import ani.rss.util.other.ItemsUtil;
 import ani.rss.util.other.RenameUtil;
 import cn.hutool.core.lang.Opt;
-import cn.hutool.core.lang.func.Func1;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import wushuo.tmdb.api.entity.Tmdb;
 
-import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 public interface BaseNotification {
@@ -41,14 +41,19 @@ public interface BaseNotification {
                 .filter(StrUtil::isNotBlank)
                 .orElse("无备注");
 
-        notificationTemplate = notificationTemplate.replace("${comment}", comment);
-
-        return replaceNotificationTemplate(ani, notificationTemplate, text, notificationStatusEnum);
+        return replaceNotificationTemplate(ani, notificationTemplate, text, notificationStatusEnum, comment);
     }
 
     default String replaceNotificationTemplate(Ani ani, String notificationTemplate, String text, NotificationStatusEnum notificationStatusEnum) {
-        notificationTemplate = notificationTemplate.replace("${text}", text);
+        return replaceNotificationTemplate(ani, notificationTemplate, text, notificationStatusEnum, null);
+    }
 
+    /**
+     * 替换通知模板
+     *
+     * @param comment 备注, 为 null 时保留 ${comment}
+     */
+    private String replaceNotificationTemplate(Ani ani, String notificationTemplate, String text, NotificationStatusEnum notificationStatusEnum, String comment) {
         // 集数
         double episode = 1.0;
         if (ReUtil.contains(StringEnum.SEASON_REG, text)) {
@@ -62,37 +67,14 @@ public interface BaseNotification {
             episodeFormat = episodeFormat + ".5";
         }
 
-        notificationTemplate = notificationTemplate.replace("${episode}",
-                NumberFormatUtils.format(episode, 1, 0)
-        );
-        notificationTemplate = notificationTemplate.replace("${episodeFormat}", episodeFormat);
-
-        List<Func1<Ani, Object>> list = List.of(
-                Ani::getTitle,
-                Ani::getScore,
-                Ani::getSeason,
-                Ani::getYear,
-                Ani::getMonth,
-                Ani::getDate,
-                Ani::getThemoviedbName,
-                Ani::getBgmUrl,
-                Ani::getCurrentEpisodeNumber,
-                Ani::getTotalEpisodeNumber,
-                Ani::getSubgroup
-        );
-
         int season = ani.getSeason();
         String seasonFormat = String.format("%02d", season);
-        notificationTemplate = notificationTemplate.replace("${seasonFormat}", seasonFormat);
-
-        notificationTemplate = RenameUtil.replaceField(notificationTemplate, ani, list);
 
         String tmdbId = Optional.of(ani)
                 .map(Ani::getTmdb)
                 .map(Tmdb::getId)
                 .filter(StrUtil::isNotBlank)
                 .orElse("");
-        notificationTemplate = notificationTemplate.replace("${tmdbid}", tmdbId);
 
         String tmdbUrl = "";
         if (StrUtil.isNotBlank(tmdbId)) {
@@ -102,35 +84,45 @@ public interface BaseNotification {
             String type = ova ? "movie" : "tv";
             tmdbUrl = StrFormatter.format("https://www.themoviedb.org/{}/{}", type, tmdbId);
         }
-        notificationTemplate = notificationTemplate.replace("${tmdburl}", tmdbUrl);
-
-        String emoji = notificationStatusEnum.getEmoji();
-        String action = notificationStatusEnum.getAction();
 
-        notificationTemplate = notificationTemplate.replace("${emoji}", emoji);
-        notificationTemplate = notificationTemplate.replace("${action}", action);
-
-        String downloadPath = DownloadService.getDownloadPath(ani);
-        notificationTemplate = notificationTemplate.replace("${downloadPath}", downloadPath);
-
-        if (notificationTemplate.contains("${jpTitle}")) {
-            String jpTitle = RenameUtil.getJpTitle(ani);
-            notificationTemplate = notificationTemplate.replace("${jpTitle}", jpTitle);
-        }
-
-        notificationTemplate = RenameUtil.replaceEpisodeTitle(notificationTemplate, episode, ani);
-
-        if (!notificationTemplate.contains("${notification}")) {
-            return notificationTemplate.trim();
-        }
-
-        Config config = ConfigUtil.CONFIG;
-        String template = config.getNotificationTemplate();
-
-        template = replaceNotificationTemplate(ani, template, text, notificationStatusEnum);
-
-        notificationTemplate = notificationTemplate.replace("${notification}", template);
+        double finalEpisode = episode;
+        String finalEpisodeFormat = episodeFormat;
+        String finalTmdbUrl = tmdbUrl;
+        notificationTemplate = Template.render(notificationTemplate, name -> switch (name) {
+            case "comment" -> comment;
+            case "text" -> text;
+            case "episode" -> NumberFormatUtils.format(finalEpisode, 1, 0);
+            case "episodeFormat" -> finalEpisodeFormat;
+            case "seasonFormat" -> seasonFormat;
+            case "title" -> toString(ani.getTitle());
+            case "score" -> toString(ani.getScore());
+            case "season" -> toString(ani.getSeason());
+            case "year" -> toString(ani.getYear());
+            case "month" -> toString(ani.getMonth());
+            case "date" -> toString(ani.getDate());
+            case "themoviedbName" -> toString(ani.getThemoviedbName());
+            case "bgmUrl" -> toString(ani.getBgmUrl());
+            case "currentEpisodeNumber" -> toString(ani.getCurrentEpisodeNumber());
+            case "totalEpisodeNumber" -> toString(ani.getTotalEpisodeNumber());
+            case "subgroup" -> toString(ani.getSubgroup());
+            case "tmdbid" -> tmdbId;
+            case "tmdburl" -> finalTmdbUrl;
+            case "emoji" -> notificationStatusEnum.getEmoji();
+            case "action" -> notificationStatusEnum.getAction();
+            case "downloadPath" -> DownloadService.getDownloadPath(ani);
+            case "jpTitle" -> RenameUtil.getJpTitle(ani);
+            case "notification" -> {
+                Config config = ConfigUtil.CONFIG;
+                String template = config.getNotificationTemplate();
+                yield replaceNotificationTemplate(ani, template, text, notificationStatusEnum);
+            }
+            default -> RenameUtil.getEpisodeTitle(name, finalEpisode, ani);
+        });
 
         return notificationTemplate.trim();
     }
+
+    private static String toString(Object o) {
+        return Objects.isNull(o) ? null : o.toString();
+    }
 }
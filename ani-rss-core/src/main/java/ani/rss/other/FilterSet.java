@@ -0,0 +1,166 @@
+package ani.rss.other;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import ani.rss.enums.StringEnum;
+import ani.rss.util.other.AniUtil;
+import ani.rss.util.other.ConfigUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 编译后的排除/匹配规则
+ * <p>
+ * 按 订阅+字幕组 缓存, 规则内容变化后自动重建, 订阅保存后整体清空。
+ * 排除与全局排除合并为一个正则, 匹配规则需要全部命中因此逐个判断
+ */
+public class FilterSet {
+    private static final Map<String, FilterSet> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存对应的订阅版本, 订阅保存后清空缓存, 已删除的订阅不会残留
+     */
+    private static volatile long cacheVersion = -1;
+
+    /**
+     * 含反向引用的规则合并后分组序号会变化, 需单独判断
+     */
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(\\d|k<)");
+
+    private final List<Object> source;
+    private final List<Pattern> excludeList = new ArrayList<>();
+    private final List<Pattern> matchList = new ArrayList<>();
+
+    private FilterSet(List<Object> source, List<String> exclude, List<String> match) {
+        this.source = source;
+
+        List<String> combinable = new ArrayList<>();
+        for (String s : exclude) {
+            if (ReUtil.contains(BACK_REFERENCE, s)) {
+                excludeList.add(compile(s));
+                continue;
+            }
+            combinable.add(s);
+        }
+        // 先逐个编译, 避免 a)|(b 这样的错误规则在合并后被当作合法正则
+        List<Pattern> patterns = combinable.stream().map(FilterSet::compile).toList();
+        if (patterns.size() == 1) {
+            excludeList.addAll(patterns);
+        } else if (patterns.size() > 1) {
+            String regex = StrUtil.join("|", combinable.stream().map(s -> "(?:" + s + ")").toList());
+            try {
+                excludeList.add(compile(regex));
+            } catch (PatternSyntaxException e) {
+                // 存在无法合并的规则
+                excludeList.addAll(patterns);
+            }
+        }
+
+        for (String s : match) {
+            matchList.add(compile(s));
+        }
+    }
+
+    /**
+     * 获取订阅的规则
+     *
+     * @param ani      订阅
+     * @param subgroup 字幕组
+     * @return 规则
+     */
+    public static FilterSet of(Ani ani, String subgroup) {
+        Config config = ConfigUtil.CONFIG;
+        Boolean globalExclude = ani.getGlobalExclude();
+        List<Object> source = new ArrayList<>();
+        source.add(new ArrayList<>(ani.getExclude()));
+        source.add(new ArrayList<>(ani.getMatch()));
+        source.add(globalExclude ? new ArrayList<>(config.getExclude()) : List.of());
+        source.add(StrUtil.nullToEmpty(subgroup));
+
+        String id = ani.getId();
+        if (StrUtil.isBlank(id)) {
+            return build(source, ani, subgroup);
+        }
+
+        long version = AniUtil.getVersion();
+        if (version != cacheVersion) {
+            CACHE.clear();
+            cacheVersion = version;
+        }
+
+        String key = id + ":" + StrUtil.nullToEmpty(subgroup);
+        FilterSet filterSet = CACHE.get(key);
+        if (Objects.nonNull(filterSet) && filterSet.source.equals(source)) {
+            return filterSet;
+        }
+        filterSet = build(source, ani, subgroup);
+        CACHE.put(key, filterSet);
+        return filterSet;
+    }
+
+    private static FilterSet build(List<Object> source, Ani ani, String subgroup) {
+        List<String> exclude = new ArrayList<>(resolve(ani.getExclude(), subgroup));
+        if (ani.getGlobalExclude()) {
+            exclude.addAll(resolve(ConfigUtil.CONFIG.getExclude(), subgroup));
+        }
+        List<String> match = resolve(ani.getMatch(), subgroup);
+        return new FilterSet(source, exclude, match);
+    }
+
+    /**
+     * 处理 {{字幕组}}:规则, 其他字幕组的规则会被忽略
+     *
+     * @param list     规则
+     * @param subgroup 字幕组
+     * @return 正则
+     */
+    private static List<String> resolve(List<String> list, String subgroup) {
+        return list.stream()
+                .map(s -> {
+                    String group = ReUtil.get(StringEnum.SUBGROUP_REG_STR, s, 1);
+                    if (StrUtil.isBlank(group)) {
+                        return s;
+                    }
+                    if (group.equals(subgroup)) {
+                        return ReUtil.get(StringEnum.SUBGROUP_REG_STR, s, 2);
+                    }
+                    return "";
+                })
+                .filter(StrUtil::isNotBlank)
+                .distinct()
+                .toList();
+    }
+
+    private static Pattern compile(String regex) {
+        // 与 ReUtil.contains 一致
+        return Pattern.compile(regex, Pattern.DOTALL);
+    }
+
+    /**
+     * 判断标题是否保留
+     *
+     * @param title 标题
+     * @return 未被排除且命中全部匹配规则
+     */
+    public Boolean test(String title) {
+        for (Pattern pattern : excludeList) {
+            if (pattern.matcher(title).find()) {
+                return false;
+            }
+        }
+        for (Pattern pattern : matchList) {
+            if (!pattern.matcher(title).find()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
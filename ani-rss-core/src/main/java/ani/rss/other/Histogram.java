@@ -0,0 +1,187 @@
+package ani.rss.other;
+
+import ani.rss.util.other.MetricsUtil;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 耗时直方图
+ * <p>
+ * 固定的桶边界, 每个桶一个 LongAdder, 记录时不加锁也不分配对象。
+ * 可带一个标签 (站点、方法等), 每个标签值一组计数
+ */
+public class Histogram {
+    /**
+     * 桶边界 (秒)
+     */
+    private static final double[] BUCKETS = {
+            0.0001, 0.0005, 0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5,
+            1, 2.5, 5, 10, 30, 60, 120, 300
+    };
+
+    private static final long[] BUCKETS_NANOS = new long[BUCKETS.length];
+
+    private static final String[] BUCKETS_LE = new String[BUCKETS.length];
+
+    static {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            BUCKETS_NANOS[i] = (long) (BUCKETS[i] * TimeUnit.SECONDS.toNanos(1));
+            BUCKETS_LE[i] = BigDecimal.valueOf(BUCKETS[i]).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private final String name;
+    private final String help;
+    private final String labelName;
+    private final Series series = new Series();
+    private final Map<String, Series> seriesMap = new ConcurrentHashMap<>();
+
+    /**
+     * @param name      名称
+     * @param help      说明
+     * @param labelName 标签名, 为 null 时不带标签
+     */
+    public Histogram(String name, String help, String labelName) {
+        this.name = name;
+        this.help = help;
+        this.labelName = labelName;
+    }
+
+    /**
+     * 记录耗时 (不带标签)
+     *
+     * @param nanos 纳秒
+     */
+    public void observe(long nanos) {
+        series.observe(nanos);
+    }
+
+    /**
+     * 执行并记录耗时 (不带标签), 抛出异常时同样记录
+     *
+     * @param supplier 执行内容
+     * @return 执行结果
+     */
+    public <T> T time(Supplier<T> supplier) {
+        return series.time(supplier);
+    }
+
+    /**
+     * 执行并记录耗时 (不带标签), 抛出异常时同样记录
+     *
+     * @param runnable 执行内容
+     */
+    public void time(Runnable runnable) {
+        series.time(runnable);
+    }
+
+    /**
+     * 获取标签值对应的计数, 已存在时不分配对象
+     *
+     * @param value 标签值
+     * @return 计数
+     */
+    public Series labels(String value) {
+        value = Objects.requireNonNullElse(value, "");
+        Series s = seriesMap.get(value);
+        if (Objects.nonNull(s)) {
+            return s;
+        }
+        return seriesMap.computeIfAbsent(value, k -> new Series());
+    }
+
+    /**
+     * 以 Prometheus 文本格式写出
+     *
+     * @param sb 输出
+     */
+    public void write(StringBuilder sb) {
+        MetricsUtil.type(sb, name, help, "histogram");
+        if (Objects.isNull(labelName)) {
+            series.write(sb, name, "");
+            return;
+        }
+        seriesMap.entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    String label = labelName + "=\"" + MetricsUtil.escape(entry.getKey()) + "\",";
+                    entry.getValue().write(sb, name, label);
+                });
+    }
+
+    public static class Series {
+        private final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+        private final LongAdder sumNanos = new LongAdder();
+
+        private Series() {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * 记录耗时
+         *
+         * @param nanos 纳秒
+         */
+        public void observe(long nanos) {
+            int i = 0;
+            while (i < BUCKETS_NANOS.length && nanos > BUCKETS_NANOS[i]) {
+                i++;
+            }
+            counts[i].increment();
+            sumNanos.add(nanos);
+        }
+
+        /**
+         * 执行并记录耗时, 抛出异常时同样记录
+         *
+         * @param supplier 执行内容
+         * @return 执行结果
+         */
+        public <T> T time(Supplier<T> supplier) {
+            long startTime = System.nanoTime();
+            try {
+                return supplier.get();
+            } finally {
+                observe(System.nanoTime() - startTime);
+            }
+        }
+
+        /**
+         * 执行并记录耗时, 抛出异常时同样记录
+         *
+         * @param runnable 执行内容
+         */
+        public void time(Runnable runnable) {
+            long startTime = System.nanoTime();
+            try {
+                runnable.run();
+            } finally {
+                observe(System.nanoTime() - startTime);
+            }
+        }
+
+        private void write(StringBuilder sb, String name, String label) {
+            long count = 0;
+            for (int i = 0; i < counts.length; i++) {
+                count += counts[i].sum();
+                String le = i < BUCKETS_LE.length ? BUCKETS_LE[i] : "+Inf";
+                sb.append(name).append("_bucket{").append(label).append("le=\"").append(le).append("\"} ")
+                        .append(count).append('\n');
+            }
+            String labels = label.isEmpty() ? "" : "{" + label.substring(0, label.length() - 1) + "}";
+            sb.append(name).append("_sum").append(labels).append(' ')
+                    .append(sumNanos.sum() / 1e9).append('\n');
+            sb.append(name).append("_count").append(labels).append(' ')
+                    .append(count).append('\n');
+        }
+    }
+}
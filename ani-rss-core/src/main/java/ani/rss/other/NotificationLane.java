@@ -0,0 +1,286 @@
+package ani.rss.other;
+
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import ani.rss.entity.NotificationConfig;
+import ani.rss.enums.NotificationStatusEnum;
+import ani.rss.enums.NotificationTypeEnum;
+import ani.rss.notification.BaseNotification;
+import ani.rss.util.other.ConfigUtil;
+import ani.rss.util.other.NotificationUtil;
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.ReflectUtil;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 单个通知渠道的发送队列
+ * <p>
+ * 每个渠道一个线程与一个通知实例, 慢的渠道不影响其它渠道。
+ * 队列中相同的通知只保留一条, 队列满时丢弃最早的通知;
+ * 开启合并通知时, 消息类渠道会把等待时间内的通知合并为一条发送
+ */
+@Slf4j
+public class NotificationLane {
+    /**
+     * 支持合并的渠道
+     */
+    private static final Set<NotificationTypeEnum> DIGEST_TYPES = Set.of(
+            NotificationTypeEnum.TELEGRAM,
+            NotificationTypeEnum.MAIL,
+            NotificationTypeEnum.SERVER_CHAN,
+            NotificationTypeEnum.SYSTEM
+    );
+
+    /**
+     * 合并后单条消息的长度上限, 超出时分为多条发送
+     */
+    private static final Map<NotificationTypeEnum, Integer> DIGEST_LIMITS = Map.of(
+            NotificationTypeEnum.TELEGRAM, 4096
+    );
+
+    private final NotificationTypeEnum notificationType;
+    private final BaseNotification notification;
+    private final LinkedBlockingDeque<Message> queue = new LinkedBlockingDeque<>();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder sends = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+    public NotificationLane(NotificationTypeEnum notificationType, Class<? extends BaseNotification> aClass) {
+        this.notificationType = notificationType;
+        this.notification = ReflectUtil.newInstance(aClass);
+
+        Thread thread = new Thread(this::run, "notification-" + notificationType.name().toLowerCase());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 加入队列
+     */
+    public synchronized void offer(NotificationConfig notificationConfig, Ani ani, String text, NotificationStatusEnum notificationStatusEnum) {
+        Message message = new Message(notificationConfig, ani, text, notificationStatusEnum, System.nanoTime());
+        if (queue.contains(message)) {
+            coalesced.increment();
+            log.debug("通知已在队列中 {} {}", notificationType, text);
+            return;
+        }
+
+        int queueSize = Math.max(ObjectUtil.defaultIfNull(ConfigUtil.CONFIG.getNotificationQueueSize(), 64), 1);
+        while (queue.size() >= queueSize) {
+            Message first = queue.pollFirst();
+            if (Objects.isNull(first)) {
+                break;
+            }
+            dropped.increment();
+            log.warn("通知队列已满, 丢弃 {} {}", notificationType, first.text);
+        }
+        queue.offerLast(message);
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                List<Message> messages = new ArrayList<>();
+                messages.add(queue.take());
+                Config config = ConfigUtil.CONFIG;
+                if (Boolean.TRUE.equals(config.getNotificationDigest()) && DIGEST_TYPES.contains(notificationType)) {
+                    long digestNanos = TimeUnit.SECONDS.toNanos(ObjectUtil.defaultIfNull(config.getNotificationDigestSeconds(), 30));
+                    long deadline = messages.get(0).time + digestNanos;
+                    long remaining;
+                    while ((remaining = deadline - System.nanoTime()) > 0) {
+                        Message message = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (Objects.isNull(message)) {
+                            break;
+                        }
+                        messages.add(message);
+                    }
+                }
+                send(messages);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 同一通知配置、同一状态的通知合并发送
+     */
+    private void send(List<Message> messages) {
+        Map<List<Object>, List<Message>> groups = messages.stream()
+                .collect(Collectors.groupingBy(
+                        it -> List.of(it.notificationConfig, it.notificationStatusEnum),
+                        LinkedHashMap::new,
+                        Collectors.toList()
+                ));
+
+        for (List<Message> group : groups.values()) {
+            if (group.size() < 2) {
+                Message message = group.get(0);
+                send(group, message.notificationConfig, message.text);
+                continue;
+            }
+
+            Message first = group.get(0);
+            NotificationConfig notificationConfig;
+            List<String> texts;
+            try {
+                texts = group.stream()
+                        .map(it -> notification.replaceNotificationTemplate(it.ani, it.notificationConfig, it.text, it.notificationStatusEnum))
+                        .toList();
+                // 已按各自的模板生成, 合并后直接发送; 不作为图片说明发送, 说明的长度限制更小
+                notificationConfig = BeanUtil.copyProperties(first.notificationConfig, NotificationConfig.class)
+                        .setNotificationTemplate("${text}")
+                        .setTelegramImage(false);
+            } catch (Exception e) {
+                log.warn("合并通知失败, 逐条发送 {} {}", notificationType, e.getMessage());
+                for (Message message : group) {
+                    send(List.of(message), message.notificationConfig, message.text);
+                }
+                continue;
+            }
+            log.debug("合并 {} 条通知 {}", group.size(), notificationType);
+
+            // 超出长度上限时分段, 单条通知不拆分
+            int limit = DIGEST_LIMITS.getOrDefault(notificationType, Integer.MAX_VALUE);
+            int from = 0;
+            int length = 0;
+            for (int i = 0; i < group.size(); i++) {
+                int add = texts.get(i).length() + (i > from ? 2 : 0);
+                if (i > from && length + add > limit) {
+                    send(group.subList(from, i), notificationConfig, String.join("\n\n", texts.subList(from, i)));
+                    from = i;
+                    add = texts.get(i).length();
+                    length = 0;
+                }
+                length += add;
+            }
+            send(group.subList(from, group.size()), notificationConfig, String.join("\n\n", texts.subList(from, group.size())));
+        }
+    }
+
+    private void send(List<Message> group, NotificationConfig notificationConfig, String text) {
+        Message first = group.get(0);
+        long startTime = System.nanoTime();
+        for (Message message : group) {
+            waitNanos.add(startTime - message.time);
+        }
+
+        Boolean ok = NotificationUtil.sendWithRetry(notification, notificationConfig, first.ani, text, first.notificationStatusEnum);
+        long time = System.nanoTime() - startTime;
+        sends.increment();
+        sendNanos.add(time);
+        maxSendNanos.accumulateAndGet(time, Math::max);
+        if (ok) {
+            sent.add(group.size());
+        } else {
+            failed.add(group.size());
+        }
+    }
+
+    public LaneStats stats() {
+        long n = Math.max(sent.sum() + failed.sum(), 1);
+        return new LaneStats()
+                .setNotificationType(notificationType)
+                .setQueued(queue.size())
+                .setSent(sent.sum())
+                .setFailed(failed.sum())
+                .setDropped(dropped.sum())
+                .setCoalesced(coalesced.sum())
+                .setAvgWaitMillis(TimeUnit.NANOSECONDS.toMillis(waitNanos.sum() / n))
+                .setAvgSendMillis(TimeUnit.NANOSECONDS.toMillis(sendNanos.sum() / Math.max(sends.sum(), 1)))
+                .setMaxSendMillis(TimeUnit.NANOSECONDS.toMillis(maxSendNanos.get()));
+    }
+
+    private record Message(NotificationConfig notificationConfig, Ani ani, String text,
+                           NotificationStatusEnum notificationStatusEnum, long time) {
+        /**
+         * 不比较加入时间
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Message message)) {
+                return false;
+            }
+            return notificationConfig == message.notificationConfig
+                    && ani == message.ani
+                    && notificationStatusEnum == message.notificationStatusEnum
+                    && Objects.equals(text, message.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(notificationConfig), System.identityHashCode(ani), notificationStatusEnum, text);
+        }
+    }
+
+    /**
+     * 通知渠道统计
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class LaneStats {
+        /**
+         * 通知类型
+         */
+        private NotificationTypeEnum notificationType;
+
+        /**
+         * 排队中
+         */
+        private Integer queued;
+
+        /**
+         * 已发送
+         */
+        private Long sent;
+
+        /**
+         * 发送失败
+         */
+        private Long failed;
+
+        /**
+         * 队列满时丢弃
+         */
+        private Long dropped;
+
+        /**
+         * 重复的通知
+         */
+        private Long coalesced;
+
+        /**
+         * 平均排队时间
+         */
+        private Long avgWaitMillis;
+
+        /**
+         * 平均发送时间
+         */
+        private Long avgSendMillis;
+
+        /**
+         * 最长发送时间
+         */
+        private Long maxSendMillis;
+    }
+}
@@ -0,0 +1,124 @@
+package ani.rss.other;
+
+import ani.rss.util.basic.CidrRangeChecker;
+import cn.hutool.core.lang.PatternPool;
+import cn.hutool.core.util.StrUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 编译后的代理规则
+ * <p>
+ * 域名按 label 倒序建立后缀树, 一条规则同时匹配自身与子域名;
+ * CIDR 规则只对 IPv4 地址生效。规则内容不变时复用编译结果
+ */
+public class ProxyRules {
+    private static volatile ProxyRules current = new ProxyRules("");
+
+    private final String source;
+    private final Node root = new Node();
+    private final List<int[]> cidrList = new ArrayList<>();
+
+    private ProxyRules(String source) {
+        this.source = source;
+        for (String s : StrUtil.split(source, "\n", true, true)) {
+            s = s.toLowerCase();
+            if (CidrRangeChecker.CIDR_PATTERN.matcher(s).matches()) {
+                String[] split = s.split("/");
+                int prefixLength = Integer.parseInt(split[1]);
+                int mask = prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+                cidrList.add(new int[]{toInt(split[0]) & mask, mask});
+                continue;
+            }
+            s = StrUtil.removePrefix(s, "*.");
+            s = StrUtil.removePrefix(s, ".");
+            if (StrUtil.isBlank(s)) {
+                continue;
+            }
+            add(s);
+        }
+    }
+
+    /**
+     * 获取规则
+     *
+     * @param proxyList 代理列表, 每行一条
+     * @return 规则
+     */
+    public static ProxyRules of(String proxyList) {
+        proxyList = StrUtil.nullToEmpty(proxyList);
+        ProxyRules rules = current;
+        if (rules.source.equals(proxyList)) {
+            return rules;
+        }
+        rules = new ProxyRules(proxyList);
+        current = rules;
+        return rules;
+    }
+
+    private void add(String domain) {
+        Node node = root;
+        int end = domain.length();
+        while (end > 0) {
+            int start = domain.lastIndexOf('.', end - 1) + 1;
+            String label = domain.substring(start, end);
+            node = node.children.computeIfAbsent(label, k -> new Node());
+            end = start - 1;
+        }
+        node.terminal = true;
+    }
+
+    /**
+     * 是否需要代理
+     *
+     * @param host host
+     * @return 命中规则
+     */
+    public Boolean test(String host) {
+        if (StrUtil.isBlank(host)) {
+            return false;
+        }
+        host = host.toLowerCase();
+
+        if (!cidrList.isEmpty() && PatternPool.IPV4.matcher(host).matches()) {
+            int ip = toInt(host);
+            for (int[] cidr : cidrList) {
+                if ((ip & cidr[1]) == cidr[0]) {
+                    return true;
+                }
+            }
+        }
+
+        Node node = root;
+        int end = host.length();
+        while (end > 0) {
+            int start = host.lastIndexOf('.', end - 1) + 1;
+            node = node.children.get(host.substring(start, end));
+            if (Objects.isNull(node)) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+            end = start - 1;
+        }
+        return false;
+    }
+
+    private static int toInt(String ip) {
+        int value = 0;
+        for (String octet : ip.split("\\.")) {
+            value = (value << 8) | Integer.parseInt(octet);
+        }
+        return value;
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean terminal = false;
+    }
+}
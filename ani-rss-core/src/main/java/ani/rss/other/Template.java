@@ -0,0 +1,153 @@
+package ani.rss.other;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 编译后的 ${xxx} 模板
+ * <p>
+ * 模板解析为 文本段 + 占位符 后按模板字符串缓存, 渲染时只遍历一次,
+ * 只有模板中出现的占位符才会求值
+ */
+public class Template {
+    private static final Map<String, Template> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存上限, 超出后清空 (模板来自设置与订阅, 数量有限)
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    /**
+     * 文本段, 比占位符多一个
+     */
+    private final String[] literals;
+
+    /**
+     * 占位符名称
+     */
+    private final String[] names;
+
+    private final int length;
+
+    private Template(String template) {
+        List<String> literalList = new ArrayList<>();
+        List<String> nameList = new ArrayList<>();
+
+        int start = 0;
+        int from = 0;
+        while (true) {
+            int begin = template.indexOf("${", from);
+            if (begin < 0) {
+                break;
+            }
+            int end = template.indexOf('}', begin + 2);
+            if (end < 0) {
+                break;
+            }
+            String name = template.substring(begin + 2, end);
+            if (!isName(name)) {
+                from = begin + 2;
+                continue;
+            }
+            literalList.add(template.substring(start, begin));
+            nameList.add(name);
+            start = end + 1;
+            from = start;
+        }
+        literalList.add(template.substring(start));
+
+        this.literals = literalList.toArray(String[]::new);
+        this.names = nameList.toArray(String[]::new);
+        this.length = template.length();
+    }
+
+    /**
+     * 获取编译后的模板
+     *
+     * @param template 模板
+     * @return 编译结果
+     */
+    public static Template of(String template) {
+        template = StrUtil.nullToEmpty(template);
+        Template compiled = CACHE.get(template);
+        if (Objects.nonNull(compiled)) {
+            return compiled;
+        }
+        if (CACHE.size() >= CACHE_SIZE) {
+            CACHE.clear();
+        }
+        compiled = new Template(template);
+        CACHE.put(template, compiled);
+        return compiled;
+    }
+
+    /**
+     * 渲染模板
+     *
+     * @param template 模板
+     * @param resolver 占位符取值, 返回 null 时保留原占位符
+     * @return 结果
+     */
+    public static String render(String template, Function<String, String> resolver) {
+        return of(template).render(resolver);
+    }
+
+    /**
+     * 是否包含占位符
+     *
+     * @param name 占位符名称
+     * @return 是否包含
+     */
+    public Boolean contains(String name) {
+        for (String s : names) {
+            if (s.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 渲染模板
+     *
+     * @param resolver 占位符取值, 返回 null 时保留原占位符
+     * @return 结果
+     */
+    public String render(Function<String, String> resolver) {
+        if (names.length == 0) {
+            return literals[0];
+        }
+        StringBuilder sb = new StringBuilder(length + 32);
+        for (int i = 0; i < names.length; i++) {
+            sb.append(literals[i]);
+            String name = names[i];
+            String value = resolver.apply(name);
+            if (Objects.isNull(value)) {
+                sb.append("${").append(name).append('}');
+            } else {
+                sb.append(value);
+            }
+        }
+        sb.append(literals[names.length]);
+        return sb.toString();
+    }
+
+    private static boolean isName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
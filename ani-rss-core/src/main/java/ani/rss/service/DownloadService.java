@@ -8,12 +8,12 @@ import ani.rss.enums.NotificationStatusEnum;
 import ani.rss.enums.NotificationTypeEnum;
 import ani.rss.enums.StringEnum;
 import ani.rss.enums.TorrentsTags;
+import ani.rss.other.Template;
 import ani.rss.util.other.*;
 import cn.hutool.core.date.DateField;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.Opt;
-import cn.hutool.core.lang.func.Func1;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.ObjectUtil;
@@ -27,6 +27,7 @@ import wushuo.tmdb.api.entity.Tmdb;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -36,13 +37,48 @@ import java.util.stream.Collectors;
 public class DownloadService {
     private static final String lock = "lock";
 
+    /**
+     * 下载位置缓存, key 为影响下载位置的全部字段
+     */
+    private static final Map<String, String> DOWNLOAD_PATH_CACHE = new ConcurrentHashMap<>();
+
+    private static final int DOWNLOAD_PATH_CACHE_SIZE = 4096;
+
+    /**
+     * 下载位置/订阅id -> 订阅, 订阅或设置保存时清空
+     */
+    private static volatile AniIndex aniIndex = null;
+
+    /**
+     * 种子 hash -> 订阅id, 添加下载时记录
+     */
+    private static final Map<String, String> HASH_INDEX = new ConcurrentHashMap<>();
+
+    private static final int HASH_INDEX_SIZE = 65536;
+
+    /**
+     * 下载动漫
+     *
+     * @param ani
+     * @return 是否已全部处理完成
+     */
+    public static Boolean downloadAni(Ani ani) {
+        // 拉取与解析无需持有锁
+        List<Item> items = ItemsUtil.getItems(ani);
+        Boolean settled = downloadAni(ani, items);
+        FeedStateUtil.settle(ani, ItemsUtil.getUrls(ani), settled);
+        return settled;
+    }
+
     /**
      * 下载动漫
      *
      * @param ani
+     * @param items 已拉取的视频列表
+     * @return 是否已全部处理完成, 存在延迟下载、数量限制等需要之后重新处理的项时为 false
      */
     @Synchronized("lock")
-    public static void downloadAni(Ani ani) {
+    public static Boolean downloadAni(Ani ani, List<Item> items) {
         Config config = ConfigUtil.CONFIG;
         Boolean delete = config.getDelete();
         Boolean autoDisabled = config.getAutoDisabled();
@@ -56,9 +92,12 @@ public class DownloadService {
         List<Double> notDownload = ani.getNotDownload();
 
         List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos();
+        Set<String> hashSet = torrentsInfos
+                .stream()
+                .map(TorrentsInfo::getHash)
+                .collect(Collectors.toSet());
 
         int currentDownloadCount = 0;
-        List<Item> items = ItemsUtil.getItems(ani);
 
         ItemsUtil.omit(ani, items);
         log.debug("{} 共 {} 个", title, items.size());
@@ -88,19 +127,22 @@ public class DownloadService {
         // 实时保存文件
         boolean sync = false;
 
+        // 存在需要之后重新处理的项
+        boolean pending = false;
+
         for (Item item : items) {
             log.debug(JSONUtil.formatJsonStr(GsonStatic.toJson(item)));
             String reName = item.getReName();
-            File torrent = TorrentUtil.getTorrent(ani, item);
             Boolean master = item.getMaster();
-            String hash = FileUtil.mainName(torrent)
+            String hash = FileUtil.mainName(item.getInfoHash() + ".torrent")
                     .trim().toLowerCase();
 
             Double episode = item.getEpisode();
             // .5 集
             boolean is5 = ItemsUtil.is5(episode);
 
-            if (torrent.exists()) {
+            // 先查询索引, 不存在时无需访问磁盘
+            if (TorrentIndexUtil.mayExist(hash) && TorrentUtil.getTorrent(ani, item).exists()) {
                 log.debug("种子记录已存在 {}", reName);
                 if (master && !is5) {
                     currentDownloadCount++;
@@ -146,6 +188,7 @@ public class DownloadService {
                 Date now = DateUtil.offset(new Date(), DateField.MINUTE, -delayedDownload);
                 if (now.getTime() < pubDate.getTime()) {
                     log.info("延迟下载 {}", reName);
+                    pending = true;
                     continue;
                 }
             }
@@ -177,23 +220,22 @@ public class DownloadService {
                     List<String> tags = standbyRSS.getTags();
                     if (!tags.contains(TorrentsTags.RENAME.getValue())) {
                         // 未完成重命名
+                        pending = true;
                         continue;
                     }
                     if (!TorrentUtil.delete(standbyRSS)) {
                         log.debug("备用RSS可能还未做种完成 {}", standbyRSS.getName());
                         // 删除失败或者不允许删除
+                        pending = true;
                         continue;
                     }
                     torrentsInfos.remove(standbyRSS);
+                    hashSet.remove(standbyRSS.getHash());
                 }
             }
 
-            // 已经下载过
-            if (torrentsInfos
-                    .stream()
-                    .anyMatch(torrentsInfo ->
-                            // hash 相同
-                            torrentsInfo.getHash().equals(hash))) {
+            // 已经下载过, hash 相同
+            if (hashSet.contains(hash)) {
                 log.info("已有下载任务 hash:{} name:{}", hash, reName);
                 if (master && !is5) {
                     currentDownloadCount++;
@@ -214,6 +256,7 @@ public class DownloadService {
             if (downloadCount > 0) {
                 if (count >= downloadCount) {
                     log.debug("达到同时下载数量限制 {}", downloadCount);
+                    pending = true;
                     continue;
                 }
             }
@@ -225,13 +268,14 @@ public class DownloadService {
 
             if (!saveTorrent.exists()) {
                 // 种子下载失败
+                pending = true;
                 continue;
             }
 
             deleteStandbyRss(ani, item);
 
             if (!AniUtil.ANI_LIST.contains(ani)) {
-                return;
+                return false;
             }
 
             sync = true;
@@ -254,11 +298,11 @@ public class DownloadService {
         }
 
         if (!autoDisabled) {
-            return;
+            return !pending;
         }
         Integer totalEpisodeNumber = ani.getTotalEpisodeNumber();
         if (totalEpisodeNumber < 1) {
-            return;
+            return !pending;
         }
         if (currentDownloadCount >= totalEpisodeNumber) {
             log.info("{} 第 {} 季 共 {} 集 已全部下载完成, 自动停止订阅", title, season, totalEpisodeNumber);
@@ -266,6 +310,7 @@ public class DownloadService {
             ani.setEnable(false);
             AniUtil.sync();
         }
+        return !pending;
     }
 
     /**
@@ -404,11 +449,17 @@ public class DownloadService {
         }
         NotificationUtil.send(ConfigUtil.CONFIG, ani, text, NotificationStatusEnum.DOWNLOAD_START);
 
+        Ani downloadAni = ani;
+        String downloadPath = savePath;
         Integer downloadRetry = config.getDownloadRetry();
         for (int i = 1; i <= downloadRetry; i++) {
             log.info("开始下载重试 {} (attempt {}/{})", name, i, downloadRetry);
             try {
-                if (TorrentUtil.DOWNLOAD.download(ani, item, savePath, torrentFile, ova)) {
+                Boolean downloaded = MetricsUtil.DOWNLOADER.labels("download")
+                        .time(() -> TorrentUtil.DOWNLOAD.download(downloadAni, item, downloadPath, torrentFile, ova));
+                TorrentUtil.invalidateTorrentsInfos();
+                if (downloaded) {
+                    putHashIndex(item.getInfoHash(), ani);
                     return;
                 }
             } catch (Exception e) {
@@ -560,6 +611,39 @@ public class DownloadService {
      * @return
      */
     public static String getDownloadPath(Ani ani, Config config) {
+        String key = getDownloadPathKey(ani, config);
+        String downloadPath = DOWNLOAD_PATH_CACHE.get(key);
+        if (Objects.nonNull(downloadPath)) {
+            return downloadPath;
+        }
+        downloadPath = buildDownloadPath(ani, config);
+        if (DOWNLOAD_PATH_CACHE.size() >= DOWNLOAD_PATH_CACHE_SIZE) {
+            DOWNLOAD_PATH_CACHE.clear();
+        }
+        DOWNLOAD_PATH_CACHE.put(key, downloadPath);
+        return downloadPath;
+    }
+
+    /**
+     * 影响下载位置的字段
+     *
+     * @param ani    订阅
+     * @param config 设置
+     * @return key
+     */
+    private static String getDownloadPathKey(Ani ani, Config config) {
+        String tmdbId = Opt.ofNullable(ani.getTmdb())
+                .map(Tmdb::getId)
+                .orElse("");
+        return StrUtil.join("\0",
+                ani.getTitle(), ani.getSeason(), ani.getYear(), ani.getMonth(), ani.getOva(),
+                ani.getCustomDownloadPath(), ani.getDownloadPath(), tmdbId, ani.getThemoviedbName(),
+                ani.getSubgroup(), ani.getJpTitle(),
+                config.getDownloadPathTemplate(), config.getOvaDownloadPathTemplate()
+        );
+    }
+
+    private static String buildDownloadPath(Ani ani, Config config) {
         Boolean customDownloadPath = ani.getCustomDownloadPath();
         String aniDownloadPath = ani.getDownloadPath();
         Boolean ova = ani.getOva();
@@ -580,88 +664,83 @@ public class DownloadService {
                     .orElse(downloadPathTemplate);
         }
 
-        String title = ani.getTitle().trim();
-
-        String pinyin = PinyinUtil.getPinyin(title);
-        String letter = pinyin.substring(0, 1).toUpperCase();
-        if (ReUtil.isMatch("^\\d$", letter)) {
-            letter = "0";
-        } else if (!ReUtil.isMatch("^[a-zA-Z]$", letter)) {
-            letter = "#";
-        }
-
-        downloadPathTemplate = downloadPathTemplate.replace("${letter}", letter);
+        Template template = Template.of(downloadPathTemplate);
 
         int year = ani.getYear();
         int month = ani.getMonth();
-        String monthFormat = String.format("%02d", month);
 
         // 季度
-        if (
-                downloadPathTemplate.contains("${quarter}") ||
-                        downloadPathTemplate.contains("${quarterFormat}") ||
-                        downloadPathTemplate.contains("${quarterName}")
-        ) {
-            int quarter;
-            String quarterName;
-            /*
-            https://github.com/wushuo894/ani-rss/pull/451
-            优化季度判断规则，避免将月底先行播放的番归类到上个季度
-            */
-            if (List.of(12, 1, 2).contains(month)) {
-                if (month == 12) {
-                    // 当使用季度信息, 并且月份等于12时, 年份自动 +1。避免年份与月份不一致
-                    year++;
-                }
-                quarter = 1;
-                quarterName = "冬";
-            } else if (List.of(3, 4, 5).contains(month)) {
-                quarter = 4;
-                quarterName = "春";
-            } else if (List.of(6, 7, 8).contains(month)) {
-                quarter = 7;
-                quarterName = "夏";
-            } else {
-                quarter = 10;
-                quarterName = "秋";
+        int quarter;
+        String quarterName;
+        /*
+        https://github.com/wushuo894/ani-rss/pull/451
+        优化季度判断规则，避免将月底先行播放的番归类到上个季度
+        */
+        if (List.of(12, 1, 2).contains(month)) {
+            if (month == 12 && (
+                    template.contains("quarter") ||
+                            template.contains("quarterFormat") ||
+                            template.contains("quarterName")
+            )) {
+                // 当使用季度信息, 并且月份等于12时, 年份自动 +1。避免年份与月份不一致
+                year++;
             }
-            String quarterFormat = String.format("%02d", quarter);
-            downloadPathTemplate = downloadPathTemplate.replace("${quarter}", String.valueOf(quarter));
-            downloadPathTemplate = downloadPathTemplate.replace("${quarterFormat}", quarterFormat);
-            downloadPathTemplate = downloadPathTemplate.replace("${quarterName}", quarterName);
+            quarter = 1;
+            quarterName = "冬";
+        } else if (List.of(3, 4, 5).contains(month)) {
+            quarter = 4;
+            quarterName = "春";
+        } else if (List.of(6, 7, 8).contains(month)) {
+            quarter = 7;
+            quarterName = "夏";
+        } else {
+            quarter = 10;
+            quarterName = "秋";
         }
 
-        downloadPathTemplate = downloadPathTemplate.replace("${year}", String.valueOf(year));
-        downloadPathTemplate = downloadPathTemplate.replace("${month}", String.valueOf(month));
-        downloadPathTemplate = downloadPathTemplate.replace("${monthFormat}", monthFormat);
-
         int season = ani.getSeason();
-        String seasonFormat = String.format("%02d", season);
-
-        downloadPathTemplate = downloadPathTemplate.replace("${season}", String.valueOf(season));
-        downloadPathTemplate = downloadPathTemplate.replace("${seasonFormat}", seasonFormat);
-
-        List<Func1<Ani, Object>> list = List.of(
-                Ani::getTitle,
-                Ani::getThemoviedbName,
-                Ani::getSubgroup
-        );
-
-        downloadPathTemplate = RenameUtil.replaceField(downloadPathTemplate, ani, list);
+        int finalYear = year;
+
+        downloadPathTemplate = template.render(name -> switch (name) {
+            case "letter" -> getLetter(ani.getTitle().trim());
+            case "quarter" -> String.valueOf(quarter);
+            case "quarterFormat" -> String.format("%02d", quarter);
+            case "quarterName" -> quarterName;
+            case "year" -> String.valueOf(finalYear);
+            case "month" -> String.valueOf(month);
+            case "monthFormat" -> String.format("%02d", month);
+            case "season" -> String.valueOf(season);
+            case "seasonFormat" -> String.format("%02d", season);
+            case "title" -> ani.getTitle();
+            case "themoviedbName" -> ani.getThemoviedbName();
+            case "subgroup" -> ani.getSubgroup();
+            case "tmdbid" -> Opt.ofNullable(ani.getTmdb())
+                    .map(Tmdb::getId)
+                    .filter(StrUtil::isNotBlank)
+                    .orElse("");
+            case "jpTitle" -> RenameUtil.getJpTitle(ani);
+            default -> null;
+        });
 
-        String tmdbId = Opt.ofNullable(ani.getTmdb())
-                .map(Tmdb::getId)
-                .filter(StrUtil::isNotBlank)
-                .orElse("");
-
-        downloadPathTemplate = downloadPathTemplate.replace("${tmdbid}", tmdbId);
+        return FileUtils.getAbsolutePath(downloadPathTemplate);
+    }
 
-        if (downloadPathTemplate.contains("${jpTitle}")) {
-            String jpTitle = RenameUtil.getJpTitle(ani);
-            downloadPathTemplate = downloadPathTemplate.replace("${jpTitle}", jpTitle);
+    /**
+     * 获取标题的首字母
+     *
+     * @param title 标题
+     * @return A-Z, 数字为 0, 其他为 #
+     */
+    private static String getLetter(String title) {
+        String pinyin = PinyinUtil.getPinyin(title);
+        String letter = pinyin.substring(0, 1).toUpperCase();
+        if (ReUtil.isMatch("^\\d$", letter)) {
+            return "0";
         }
-
-        return FileUtils.getAbsolutePath(downloadPathTemplate);
+        if (!ReUtil.isMatch("^[a-zA-Z]$", letter)) {
+            return "#";
+        }
+        return letter;
     }
 
 
@@ -765,16 +844,95 @@ public class DownloadService {
      * @param torrentsInfo
      * @return
      */
-    public static synchronized Optional<Ani> findAniByDownloadPath(TorrentsInfo torrentsInfo) {
+    public static Optional<Ani> findAniByDownloadPath(TorrentsInfo torrentsInfo) {
+        return findAni(torrentsInfo)
+                .map(ObjectUtil::clone);
+    }
+
+    /**
+     * 根据任务反查订阅, 返回的是订阅列表中的对象, 只读不可修改
+     * <p>
+     * 优先使用添加下载时记录的 hash, 其次使用下载位置
+     *
+     * @param torrentsInfo
+     * @return
+     */
+    public static Optional<Ani> findAni(TorrentsInfo torrentsInfo) {
+        AniIndex index = getAniIndex();
+
+        String hash = torrentsInfo.getHash();
+        if (StrUtil.isNotBlank(hash)) {
+            String id = HASH_INDEX.get(hash.toLowerCase());
+            if (StrUtil.isNotBlank(id)) {
+                Ani ani = index.idMap.get(id);
+                if (Objects.nonNull(ani)) {
+                    return Optional.of(ani);
+                }
+            }
+        }
+
         String downloadDir = torrentsInfo.getDownloadDir();
-        return AniUtil.ANI_LIST
-                .stream()
-                .filter(ani -> {
-                    String path = getDownloadPath(ani);
-                    return path.equals(downloadDir);
-                })
-                .map(ObjectUtil::clone)
-                .findFirst();
+        if (StrUtil.isBlank(downloadDir)) {
+            return Optional.empty();
+        }
+
+        Ani ani = index.pathMap.get(downloadDir);
+        if (Objects.nonNull(ani) && !(index.idMap.get(ani.getId()) == ani && getDownloadPath(ani).equals(downloadDir))) {
+            // 订阅已修改, 重建索引 (订阅的增删在保存时已清空索引)
+            clearDownloadPathIndex();
+            ani = getAniIndex().pathMap.get(downloadDir);
+        }
+        return Optional.ofNullable(ani);
+    }
+
+    /**
+     * 记录种子所属的订阅
+     *
+     * @param hash 种子 hash
+     * @param ani  订阅
+     */
+    public static void putHashIndex(String hash, Ani ani) {
+        String id = ani.getId();
+        if (StrUtil.isBlank(hash) || StrUtil.isBlank(id)) {
+            return;
+        }
+        if (HASH_INDEX.size() >= HASH_INDEX_SIZE) {
+            HASH_INDEX.clear();
+        }
+        HASH_INDEX.put(hash.toLowerCase(), id);
+    }
+
+    /**
+     * 获取订阅索引, 下载位置相同时取列表中靠前的订阅
+     *
+     * @return 索引
+     */
+    private static AniIndex getAniIndex() {
+        AniIndex index = aniIndex;
+        if (Objects.nonNull(index)) {
+            return index;
+        }
+        index = new AniIndex();
+        for (Ani ani : AniUtil.ANI_LIST) {
+            index.pathMap.putIfAbsent(getDownloadPath(ani), ani);
+            if (StrUtil.isNotBlank(ani.getId())) {
+                index.idMap.putIfAbsent(ani.getId(), ani);
+            }
+        }
+        aniIndex = index;
+        return index;
+    }
+
+    /**
+     * 清空订阅索引, 在订阅或设置保存时调用
+     */
+    public static void clearDownloadPathIndex() {
+        aniIndex = null;
+    }
+
+    private static class AniIndex {
+        private final Map<String, Ani> pathMap = new HashMap<>();
+        private final Map<String, Ani> idMap = new HashMap<>();
     }
 
 }
@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
@@ -123,6 +124,20 @@ public class RcloneSyncTaskService {
                 );
     }
 
+    /**
+     * 各状态的任务数
+     */
+    public static Map<String, Long> countByStatus() {
+        Map<String, Long> map = new TreeMap<>();
+        for (String status : List.of("queued", "running")) {
+            map.put(status, 0L);
+        }
+        for (RcloneSyncTask task : TASK_MAP.values()) {
+            map.merge(StrUtil.blankToDefault(task.getStatus(), "unknown"), 1L, Long::sum);
+        }
+        return map;
+    }
+
     public static String probe(NotificationConfig notificationConfig) {
         String command = buildRcCommand(notificationConfig, "core/version", List.of());
         String host = StrUtil.blankToDefault(notificationConfig.getRcloneSyncSshHost(), "-");
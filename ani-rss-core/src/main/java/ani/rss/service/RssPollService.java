@@ -0,0 +1,128 @@
+package ani.rss.service;
+
+import ani.rss.entity.Config;
+import ani.rss.util.other.ConfigUtil;
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * RSS 并发拉取
+ * <p>
+ * 拉取与解析在线程池中并发执行, 同一站点通过信号量限制并发数,
+ * 涉及下载器与种子记录的步骤仍由调用方串行处理
+ */
+@Slf4j
+public class RssPollService {
+    private static final Map<String, HostLimit> HOST_LIMIT_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 创建拉取线程池
+     *
+     * @param config 设置
+     * @return 线程池
+     */
+    public static ExecutorService newExecutor(Config config) {
+        int threads = Math.max(1, config.getRssThreads());
+
+        ThreadFactory threadFactory = null;
+        if (config.getRssVirtualThread()) {
+            threadFactory = virtualThreadFactory();
+        }
+        if (Objects.isNull(threadFactory)) {
+            threadFactory = ThreadFactoryBuilder.create()
+                    .setNamePrefix("rss-poll-")
+                    .setDaemon(true)
+                    .build();
+        }
+
+        return ExecutorBuilder.create()
+                .setCorePoolSize(threads)
+                .setMaxPoolSize(threads)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(threadFactory)
+                .build();
+    }
+
+    /**
+     * 按站点限制并发执行
+     *
+     * @param url      请求地址
+     * @param supplier 请求
+     * @return 结果
+     */
+    public static <T> T host(String url, Supplier<T> supplier) {
+        int permits = Math.max(1, ConfigUtil.CONFIG.getRssHostThreads());
+        String host = getHost(url);
+
+        Semaphore semaphore = HOST_LIMIT_MAP.compute(host, (k, v) -> {
+            if (Objects.nonNull(v) && v.permits == permits) {
+                return v;
+            }
+            // 设置修改后重建
+            return new HostLimit(permits);
+        }).semaphore;
+
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        try {
+            return supplier.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * 获取站点
+     *
+     * @param url 请求地址
+     * @return 站点
+     */
+    public static String getHost(String url) {
+        try {
+            String host = URLUtil.url(url).getHost();
+            return StrUtil.blankToDefault(host, url);
+        } catch (Exception e) {
+            return url;
+        }
+    }
+
+    /**
+     * 虚拟线程工厂, 低于 Java 21 时返回 null
+     *
+     * @return 线程工厂
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "rss-poll-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            log.warn("当前 Java 版本不支持虚拟线程, 将使用普通线程");
+            return null;
+        }
+    }
+
+    private static class HostLimit {
+        private final int permits;
+        private final Semaphore semaphore;
+
+        private HostLimit(int permits) {
+            this.permits = permits;
+            this.semaphore = new Semaphore(permits);
+        }
+    }
+}
@@ -37,7 +37,7 @@ public class RenameTask extends Thread {
                 continue;
             }
             try {
-                List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos();
+                List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos(true);
                 for (TorrentsInfo torrentsInfo : torrentsInfos) {
                     if (!loop.get()) {
                         return;
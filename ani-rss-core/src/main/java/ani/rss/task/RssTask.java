@@ -3,20 +3,27 @@ package ani.rss.task;
 import ani.rss.commons.ExceptionUtils;
 import ani.rss.entity.Ani;
 import ani.rss.entity.Config;
+import ani.rss.entity.Item;
 import ani.rss.entity.RssTaskStatus;
 import ani.rss.service.DownloadService;
+import ani.rss.service.RssPollService;
 import ani.rss.util.other.AniUtil;
 import ani.rss.util.other.ConfigUtil;
+import ani.rss.util.other.FeedStateUtil;
+import ani.rss.util.other.ItemsUtil;
+import ani.rss.util.other.MetricsUtil;
 import ani.rss.util.other.TorrentUtil;
+import cn.hutool.core.lang.Pair;
 import cn.hutool.core.thread.ThreadUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * RSS
@@ -26,7 +33,10 @@ public class RssTask extends Thread {
     public static final AtomicBoolean download = new AtomicBoolean(false);
     private static final AtomicLong START_TIME = new AtomicLong(0L);
     private static final AtomicLong LAST_FINISH_TIME = new AtomicLong(0L);
-    private static final AtomicReference<String> CURRENT_TASK = new AtomicReference<>("");
+    /**
+     * 正在拉取或处理中的任务
+     */
+    private static final Set<String> RUNNING = ConcurrentHashMap.newKeySet();
     private static final List<String> QUEUE = new ArrayList<>();
 
     private final AtomicBoolean loop;
@@ -36,60 +46,82 @@ public class RssTask extends Thread {
     }
 
     public static void download(AtomicBoolean loop) {
+        MetricsUtil.SWEEP.time(() -> doDownload(loop));
+    }
+
+    private static void doDownload(AtomicBoolean loop) {
+        ExecutorService executor = null;
         try {
             if (!TorrentUtil.login()) {
                 return;
             }
 
-            List<String> queue = new ArrayList<>();
+            List<Ani> aniList = new ArrayList<>();
             for (Ani ani : AniUtil.ANI_LIST) {
                 if (!Boolean.TRUE.equals(ani.getEnable())) {
+                    log.debug("{} 未启用", ani.getTitle());
                     continue;
                 }
-                queue.add(taskName(ani));
+                aniList.add(ani);
             }
             synchronized (QUEUE) {
                 QUEUE.clear();
-                QUEUE.addAll(queue);
+                aniList.stream()
+                        .map(RssTask::taskName)
+                        .forEach(QUEUE::add);
             }
 
-            for (Ani ani : AniUtil.ANI_LIST) {
+            // 并发拉取与解析, 写入下载器的步骤在当前线程串行执行
+            executor = RssPollService.newExecutor(ConfigUtil.CONFIG);
+            CompletionService<Pair<Ani, List<Item>>> completionService = new ExecutorCompletionService<>(executor);
+            for (Ani ani : aniList) {
+                completionService.submit(() -> fetch(loop, ani));
+            }
+
+            for (int i = 0; i < aniList.size(); i++) {
+                Pair<Ani, List<Item>> pair = completionService.take().get();
                 if (!loop.get()) {
                     return;
                 }
 
-                if (!AniUtil.ANI_LIST.contains(ani)) {
-                    continue;
-                }
-
+                Ani ani = pair.getKey();
+                List<Item> items = pair.getValue();
                 String title = ani.getTitle();
-                if (!Boolean.TRUE.equals(ani.getEnable())) {
-                    log.debug("{} 未启用", title);
-                    continue;
-                }
-
                 String taskName = taskName(ani);
-                CURRENT_TASK.set(taskName);
                 try {
-                    DownloadService.downloadAni(ani);
+                    if (Objects.isNull(items)) {
+                        continue;
+                    }
+                    if (!AniUtil.ANI_LIST.contains(ani)) {
+                        continue;
+                    }
+                    if (!Boolean.TRUE.equals(ani.getEnable())) {
+                        log.debug("{} 未启用", title);
+                        continue;
+                    }
+                    Boolean settled = DownloadService.downloadAni(ani, items);
+                    FeedStateUtil.settle(ani, ItemsUtil.getUrls(ani), settled);
                 } catch (Exception e) {
                     String message = ExceptionUtils.getMessage(e);
                     log.error("{} {}", title, message);
                     log.error(message, e);
                 } finally {
+                    RUNNING.remove(taskName);
                     synchronized (QUEUE) {
                         QUEUE.remove(taskName);
                     }
                 }
-
-                // Avoid request bursts over a short period.
-                ThreadUtil.sleep(500);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             String message = ExceptionUtils.getMessage(e);
             log.error(message, e);
         } finally {
-            CURRENT_TASK.set("");
+            if (Objects.nonNull(executor)) {
+                executor.shutdownNow();
+            }
+            RUNNING.clear();
             synchronized (QUEUE) {
                 QUEUE.clear();
             }
@@ -98,13 +130,37 @@ public class RssTask extends Thread {
         }
     }
 
+    /**
+     * 拉取并解析订阅, 失败或 RSS 未发生变化时视频列表为 null
+     *
+     * @param loop 运行状态
+     * @param ani  订阅
+     * @return 订阅与视频列表
+     */
+    private static Pair<Ani, List<Item>> fetch(AtomicBoolean loop, Ani ani) {
+        if (!loop.get() || !AniUtil.ANI_LIST.contains(ani)) {
+            return Pair.of(ani, null);
+        }
+        String title = ani.getTitle();
+        RUNNING.add(taskName(ani));
+        try {
+            // RSS 未发生变化时为 null
+            return Pair.of(ani, ItemsUtil.getItems(ani, true));
+        } catch (Exception e) {
+            String message = ExceptionUtils.getMessage(e);
+            log.error("{} {}", title, message);
+            log.error(message, e);
+        }
+        return Pair.of(ani, null);
+    }
+
     public static void sync() {
         synchronized (download) {
             if (download.get()) {
                 throw new RuntimeException("存在未完成任务，请等待...");
             }
             START_TIME.set(System.currentTimeMillis());
-            CURRENT_TASK.set("");
+            RUNNING.clear();
             synchronized (QUEUE) {
                 QUEUE.clear();
             }
@@ -119,11 +175,14 @@ public class RssTask extends Thread {
         }
         return new RssTaskStatus()
                 .setRunning(download.get())
-                .setCurrentTask(CURRENT_TASK.get())
+                .setRunningTasks(new ArrayList<>(RUNNING))
                 .setQueue(queue)
                 .setQueueSize(queue.size())
                 .setStartTime(START_TIME.get())
-                .setLastFinishTime(LAST_FINISH_TIME.get());
+                .setLastFinishTime(LAST_FINISH_TIME.get())
+                .setFeedHit(FeedStateUtil.HIT.get())
+                .setFeedMiss(FeedStateUtil.MISS.get())
+                .setFeedNotModified(FeedStateUtil.NOT_MODIFIED.get());
     }
 
     private static String taskName(Ani ani) {
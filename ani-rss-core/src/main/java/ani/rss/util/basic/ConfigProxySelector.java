@@ -0,0 +1,51 @@
+package ani.rss.util.basic;
+
+import ani.rss.entity.Config;
+import ani.rss.other.ProxyRules;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.*;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 按设置中的代理列表选择代理
+ */
+@Slf4j
+public class ConfigProxySelector extends ProxySelector {
+    private final Config config;
+
+    public ConfigProxySelector(Config config) {
+        this.config = config;
+    }
+
+    @Override
+    public List<Proxy> select(URI uri) {
+        Boolean proxy = config.getProxy();
+        if (!proxy) {
+            log.debug("代理未开启 {}", uri);
+            return List.of(Proxy.NO_PROXY);
+        }
+
+        if (!ProxyRules.of(config.getProxyList()).test(uri.getHost())) {
+            // 不进行代理
+            return List.of(Proxy.NO_PROXY);
+        }
+
+        String proxyHost = config.getProxyHost();
+        Integer proxyPort = config.getProxyPort();
+        if (StrUtil.isBlank(proxyHost) || Objects.isNull(proxyPort)) {
+            log.debug("代理参数不全 {}", uri);
+            return List.of(Proxy.NO_PROXY);
+        }
+
+        return List.of(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(proxyHost, proxyPort)));
+    }
+
+    @Override
+    public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {
+        log.debug("代理连接失败 {} {} {}", uri, sa, ioe.getMessage());
+    }
+}
@@ -1,14 +1,12 @@
 package ani.rss.util.basic;
 
-import ani.rss.commons.CacheUtils;
 import ani.rss.entity.Config;
+import ani.rss.other.ProxyRules;
 import ani.rss.util.other.ConfigUtil;
 import cn.hutool.core.lang.Assert;
-import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.core.util.URLUtil;
-import cn.hutool.crypto.SecureUtil;
 import cn.hutool.http.Header;
 import cn.hutool.http.HttpConnection;
 import cn.hutool.http.HttpRequest;
@@ -17,9 +15,7 @@ import cn.hutool.http.cookie.GlobalCookieManager;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.*;
-import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class HttpReq {
@@ -27,14 +23,30 @@ public class HttpReq {
 
     public static final CookieManager COOKIE_MANAGER;
 
+    /**
+     * 最后一次使用的代理账号, 由全局的 Authenticator 读取
+     */
+    private static volatile PasswordAuthentication proxyAuthentication;
+
     static {
         COOKIE_MANAGER = new CookieManager();
         COOKIE_MANAGER.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
+        GlobalCookieManager.setCookieManager(COOKIE_MANAGER);
+
+        Authenticator.setDefault(
+                new Authenticator() {
+                    @Override
+                    public PasswordAuthentication getPasswordAuthentication() {
+                        if (getRequestorType() != RequestorType.PROXY) {
+                            return null;
+                        }
+                        return proxyAuthentication;
+                    }
+                }
+        );
     }
 
     private static void config(HttpRequest req) {
-        GlobalCookieManager.setCookieManager(COOKIE_MANAGER);
-
         req.timeout(1000 * 20)
                 .setFollowRedirects(true);
 
@@ -90,39 +102,25 @@ public class HttpReq {
      */
     public static void setProxy(HttpRequest req, Config config) {
         String url = req.getUrl();
-        Boolean proxy = config.getProxy();
-        if (!proxy) {
-            log.debug("代理未开启 {}", url);
-            return;
-        }
-
-        if (!isProxy(url)) {
-            // 不进行代理
-            return;
-        }
-
-        String proxyHost = config.getProxyHost();
-        Integer proxyPort = config.getProxyPort();
-        if (StrUtil.isBlank(proxyHost) || Objects.isNull(proxyPort)) {
-            log.debug("代理参数不全 {}", url);
+        Proxy proxy = new ConfigProxySelector(config)
+                .select(URLUtil.toURI(url))
+                .get(0);
+        if (proxy.type() == Proxy.Type.DIRECT) {
             return;
         }
 
         String proxyUsername = config.getProxyUsername();
         String proxyPassword = config.getProxyPassword();
         try {
-            req.setHttpProxy(proxyHost, proxyPort);
-            Authenticator.setDefault(
-                    new Authenticator() {
-                        @Override
-                        public PasswordAuthentication getPasswordAuthentication() {
-                            if (StrUtil.isAllNotBlank(proxyUsername, proxyPassword)) {
-                                return new PasswordAuthentication(proxyUsername, proxyPassword.toCharArray());
-                            }
-                            return null;
-                        }
-                    }
-            );
+            req.setProxy(proxy);
+            PasswordAuthentication authentication = proxyAuthentication;
+            if (!StrUtil.isAllNotBlank(proxyUsername, proxyPassword)) {
+                proxyAuthentication = null;
+            } else if (Objects.isNull(authentication)
+                    || !proxyUsername.equals(authentication.getUserName())
+                    || !proxyPassword.equals(String.valueOf(authentication.getPassword()))) {
+                proxyAuthentication = new PasswordAuthentication(proxyUsername, proxyPassword.toCharArray());
+            }
             log.debug("使用代理 {}", url);
         } catch (Exception e) {
             log.error("设置代理出现问题 {}", url);
@@ -150,33 +148,7 @@ public class HttpReq {
      */
     public static Boolean isProxy(String url) {
         String host = URLUtil.url(url).getHost();
-
-        Config config = ConfigUtil.CONFIG;
-        String proxyList = config.getProxyList();
-
-        String key = StrFormatter.format("proxyList:{}", SecureUtil.md5(proxyList));
-
-        List<String> split = CacheUtils.get(key);
-
-        if (Objects.isNull(split)) {
-            split = StrUtil.split(proxyList, "\n", true, true);
-            CacheUtils.put(key, split, TimeUnit.MINUTES.toMillis(10));
-        }
-
-        if (split.isEmpty()) {
-            return false;
-        }
-
-        if (split.contains(host)) {
-            return true;
-        }
-
-        for (String s : split) {
-            if (host.endsWith("." + s)) {
-                return true;
-            }
-        }
-        return false;
+        return ProxyRules.of(ConfigUtil.CONFIG.getProxyList()).test(host);
     }
 
 }
@@ -5,6 +5,7 @@ import ani.rss.entity.Config;
 import ani.rss.util.other.ConfigUtil;
 import cn.hutool.core.net.url.UrlBuilder;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
 import cn.hutool.http.HttpRequest;
 import cn.hutool.http.HttpResponse;
 import cn.hutool.http.Method;
@@ -71,6 +72,7 @@ public class HttpRequestPlus extends HttpRequest {
     @Override
     public HttpResponse execute(boolean isAsync) {
         String url = getUrl();
+        RateLimiter.acquire(URLUtil.url(url).getHost());
         try {
             return super.execute(isAsync);
         } catch (Exception e) {
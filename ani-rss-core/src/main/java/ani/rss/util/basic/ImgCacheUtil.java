@@ -0,0 +1,404 @@
+package ani.rss.util.basic;
+
+import ani.rss.commons.GsonStatic;
+import ani.rss.util.other.ConfigUtil;
+import cn.hutool.core.img.ImgUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.http.Header;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpStatus;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 图片缓存
+ * <p>
+ * 按 url 的 md5 保存到 config/img, 同一张图片同时只请求一次, 其余请求等待结果;
+ * 超过有效时间后先返回旧文件, 后台带上 ETag/Last-Modified 重新验证;
+ * 总大小超出上限时按最近访问时间淘汰。可按宽度生成缩略图
+ */
+@Slf4j
+public class ImgCacheUtil {
+    /**
+     * 缓存总大小上限
+     */
+    private static final long MAX_SIZE = 256 * 1024 * 1024;
+
+    /**
+     * 有效时间, 之后重新验证
+     */
+    private static final long TTL = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * 等待其它请求下载的时间 (秒)
+     */
+    private static final long WAIT_TIMEOUT = 30;
+
+    /**
+     * 缩略图宽度按此对齐, 避免生成过多尺寸
+     */
+    private static final int WIDTH_STEP = 64;
+
+    private static final int MAX_WIDTH = 1024;
+
+    /**
+     * 正在下载或生成的 key
+     */
+    private static final Map<String, CompletableFuture<File>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存文件 -> 最近访问时间
+     */
+    private static final Map<File, Long> ACCESS_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存文件 -> 大小
+     */
+    private static final Map<File, Long> SIZE_MAP = new ConcurrentHashMap<>();
+
+    private static final AtomicLong TOTAL_SIZE = new AtomicLong();
+
+    private static final Map<String, Meta> META_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 后台重新验证, 队列满时丢弃 (下次访问会再次触发)
+     */
+    private static final ExecutorService EXECUTOR_SERVICE = ExecutorBuilder.create()
+            .setCorePoolSize(1)
+            .setMaxPoolSize(1)
+            .setWorkQueue(new LinkedBlockingQueue<>(256))
+            .setHandler(new ThreadPoolExecutor.DiscardPolicy())
+            .build();
+
+    private static volatile boolean loaded = false;
+
+    public static File getImgDir() {
+        return new File(ConfigUtil.getConfigDir() + File.separator + "img");
+    }
+
+    /**
+     * 获取缓存的图片
+     *
+     * @param url   图片地址
+     * @param width 缩略图宽度, 为空时返回原图
+     * @return 图片文件
+     */
+    public static File get(String url, Integer width) {
+        if (!loaded) {
+            load();
+        }
+
+        String key = SecureUtil.md5(url);
+        Meta meta = getMeta(key);
+        File file;
+        if (Objects.isNull(meta)) {
+            // 直接使用下载结果, 此时元数据可能已被并发的清理删除
+            file = singleFlight(key, () -> fetch(url, key, null));
+        } else {
+            if (System.currentTimeMillis() - meta.getTime() > TTL) {
+                refreshAsync(url, key, meta);
+            }
+            file = new File(getDir(key), meta.getFileName());
+        }
+        touch(file);
+
+        if (Objects.isNull(width) || width < 1) {
+            return file;
+        }
+
+        // 先限制再对齐, 避免 width 过大时溢出
+        width = Math.min(MAX_WIDTH, width);
+        width = (width + WIDTH_STEP - 1) / WIDTH_STEP * WIDTH_STEP;
+        String extName = FileUtil.extName(file);
+        File variant = new File(getDir(key), StrUtil.format("{}_w{}.{}", key, width, extName));
+        if (variant.exists()) {
+            touch(variant);
+            return variant;
+        }
+
+        int w = width;
+        return singleFlight(variant.getName(), () -> scale(file, variant, w));
+    }
+
+    /**
+     * 清空缓存
+     *
+     * @return 清理的大小
+     */
+    public static synchronized long clear() {
+        File imgDir = getImgDir();
+        long size = FileUtil.size(imgDir);
+        FileUtil.del(imgDir);
+        ACCESS_MAP.clear();
+        SIZE_MAP.clear();
+        TOTAL_SIZE.set(0);
+        META_MAP.clear();
+        return size;
+    }
+
+    /**
+     * 相同 key 只执行一次, 其余调用等待结果
+     */
+    private static File singleFlight(String key, Supplier<File> loader) {
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> running = IN_FLIGHT.putIfAbsent(key, future);
+        if (Objects.nonNull(running)) {
+            try {
+                return running.get(WAIT_TIMEOUT, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+        try {
+            File file = loader.get();
+            future.complete(file);
+            return file;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(key, future);
+        }
+    }
+
+    private static void refreshAsync(String url, String key, Meta meta) {
+        if (IN_FLIGHT.containsKey(key)) {
+            return;
+        }
+        EXECUTOR_SERVICE.execute(() -> {
+            try {
+                singleFlight(key, () -> fetch(url, key, meta));
+            } catch (Exception e) {
+                log.warn("图片重新验证失败, 继续使用旧文件 {} {}", url, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 下载图片, 有旧文件时带上 ETag/Last-Modified
+     */
+    private static File fetch(String url, String key, Meta meta) {
+        URI host = URLUtil.getHost(URLUtil.url(url));
+        HttpRequest request = HttpReq.get(url);
+        if (Objects.nonNull(meta)) {
+            if (StrUtil.isNotBlank(meta.getEtag())) {
+                request.header("If-None-Match", meta.getEtag());
+            }
+            if (StrUtil.isNotBlank(meta.getLastModified())) {
+                request.header("If-Modified-Since", meta.getLastModified());
+            }
+        }
+        return request.thenFunction(res -> {
+            URI host1 = URLUtil.getHost(URLUtil.url(HttpReq.getUrl(res)));
+            if (!host.toString().equals(host1.toString())) {
+                String newUrl = url.replace(host.toString(), host1.toString());
+                return fetch(newUrl, key, meta);
+            }
+
+            File dir = getDir(key);
+            if (Objects.nonNull(meta) && res.getStatus() == HttpStatus.HTTP_NOT_MODIFIED) {
+                meta.setTime(System.currentTimeMillis());
+                saveMeta(key, meta);
+                return new File(dir, meta.getFileName());
+            }
+            HttpReq.assertStatus(res);
+
+            String extName = FileUtil.extName(URLUtil.getPath(url));
+            if (StrUtil.isBlank(extName)) {
+                extName = StrUtil.subAfter(StrUtil.subBefore(res.header(Header.CONTENT_TYPE), ";", false), "/", true);
+            }
+            extName = StrUtil.blankToDefault(extName, "jpg").toLowerCase();
+
+            File file = new File(dir, key + "." + extName);
+            File temp = new File(dir, key + ".temp");
+            InputStream inputStream = res.bodyStream();
+            FileUtil.writeFromStream(inputStream, temp, true);
+            FileUtil.rename(temp, file.getName(), true);
+
+            // 原图变化后缩略图失效
+            for (File variant : FileUtil.loopFiles(dir, it -> it.getName().startsWith(key + "_w"))) {
+                remove(variant);
+            }
+
+            Meta newMeta = new Meta()
+                    .setFileName(file.getName())
+                    .setEtag(res.header(Header.ETAG))
+                    .setLastModified(res.header("Last-Modified"))
+                    .setTime(System.currentTimeMillis());
+            saveMeta(key, newMeta);
+            add(file, System.currentTimeMillis());
+            evict();
+            log.debug("缓存图片 {}", url);
+            return file;
+        });
+    }
+
+    /**
+     * 生成缩略图, 无法读取 (如 webp) 或原图更小时返回原图
+     */
+    private static File scale(File file, File variant, int width) {
+        try {
+            BufferedImage image = ImgUtil.read(file);
+            if (Objects.isNull(image) || image.getWidth() <= width) {
+                return file;
+            }
+            int height = Math.max(1, image.getHeight() * width / image.getWidth());
+            File temp = new File(variant + ".temp");
+            try (OutputStream outputStream = FileUtil.getOutputStream(temp)) {
+                ImgUtil.write(ImgUtil.scale(image, width, height), FileUtil.extName(variant), outputStream);
+            }
+            FileUtil.rename(temp, variant.getName(), true);
+        } catch (Exception e) {
+            log.debug("生成缩略图失败 {} {}", file, e.getMessage());
+            return file;
+        }
+        add(variant, System.currentTimeMillis());
+        evict();
+        return variant;
+    }
+
+    private static File getDir(String key) {
+        return new File(getImgDir(), key.substring(0, 2));
+    }
+
+    private static Meta getMeta(String key) {
+        Meta meta = META_MAP.get(key);
+        if (Objects.nonNull(meta)) {
+            return meta;
+        }
+        File metaFile = new File(getDir(key), key + ".json");
+        if (!metaFile.exists()) {
+            return null;
+        }
+        try {
+            meta = GsonStatic.fromJson(FileUtil.readUtf8String(metaFile), Meta.class);
+        } catch (Exception e) {
+            log.debug("图片缓存信息损坏 {}", metaFile);
+            return null;
+        }
+        if (!new File(getDir(key), meta.getFileName()).exists()) {
+            return null;
+        }
+        META_MAP.put(key, meta);
+        return meta;
+    }
+
+    private static void saveMeta(String key, Meta meta) {
+        File metaFile = new File(getDir(key), key + ".json");
+        FileUtil.writeUtf8String(GsonStatic.toJson(meta), metaFile);
+        META_MAP.put(key, meta);
+    }
+
+    private static void touch(File file) {
+        ACCESS_MAP.computeIfPresent(file, (k, v) -> System.currentTimeMillis());
+    }
+
+    private static void add(File file, long accessTime) {
+        long length = file.length();
+        Long old = SIZE_MAP.put(file, length);
+        TOTAL_SIZE.addAndGet(length - Objects.requireNonNullElse(old, 0L));
+        ACCESS_MAP.put(file, accessTime);
+    }
+
+    private static void remove(File file) {
+        FileUtil.del(file);
+        ACCESS_MAP.remove(file);
+        Long old = SIZE_MAP.remove(file);
+        if (Objects.nonNull(old)) {
+            TOTAL_SIZE.addAndGet(-old);
+        }
+    }
+
+    /**
+     * 读取已有的缓存, 以修改时间作为访问时间
+     */
+    private static synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        File imgDir = getImgDir();
+        if (imgDir.exists()) {
+            for (File file : FileUtil.loopFiles(imgDir)) {
+                if (StrUtil.endWithAny(file.getName(), ".json", ".temp")) {
+                    continue;
+                }
+                add(file, file.lastModified());
+            }
+            evict();
+        }
+        // 加载完成后再标记, 未加锁的读取不会看到加载到一半的状态
+        loaded = true;
+    }
+
+    /**
+     * 超出上限时按最近访问时间淘汰
+     */
+    private static synchronized void evict() {
+        if (TOTAL_SIZE.get() <= MAX_SIZE) {
+            return;
+        }
+
+        List<Map.Entry<File, Long>> entries = new ArrayList<>(ACCESS_MAP.entrySet());
+        entries.sort(Map.Entry.comparingByValue());
+
+        // 淘汰到上限的 90%, 避免频繁清理
+        long target = MAX_SIZE / 10 * 9;
+        int count = 0;
+        for (Map.Entry<File, Long> entry : entries) {
+            if (TOTAL_SIZE.get() <= target) {
+                break;
+            }
+            File file = entry.getKey();
+            String mainName = FileUtil.mainName(file);
+            if (IN_FLIGHT.containsKey(mainName) || IN_FLIGHT.containsKey(file.getName())) {
+                continue;
+            }
+            remove(file);
+            if (!mainName.contains("_w")) {
+                // 原图被淘汰时一并删除缓存信息
+                META_MAP.remove(mainName);
+                FileUtil.del(new File(file.getParentFile(), mainName + ".json"));
+            }
+            count++;
+        }
+        log.debug("图片缓存超出上限, 淘汰 {} 个文件", count);
+    }
+
+    /**
+     * 缓存信息
+     */
+    @Data
+    @Accessors(chain = true)
+    private static class Meta {
+        /**
+         * 原图文件名
+         */
+        private String fileName;
+
+        private String etag;
+
+        private String lastModified;
+
+        /**
+         * 下载或验证的时间
+         */
+        private Long time;
+    }
+}
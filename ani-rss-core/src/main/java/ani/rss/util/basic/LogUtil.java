@@ -2,7 +2,7 @@ package ani.rss.util.basic;
 
 import ani.rss.entity.Config;
 import ani.rss.entity.Log;
-import ani.rss.list.FixedSizeLinkedList;
+import ani.rss.list.LogRingBuffer;
 import ani.rss.util.other.ConfigUtil;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
@@ -25,8 +25,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
-import java.time.Instant;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
@@ -34,7 +32,12 @@ import java.util.Objects;
 @Slf4j
 public class LogUtil {
 
-    public static final List<Log> LOG_LIST = Collections.synchronizedList(new FixedSizeLinkedList<>());
+    /**
+     * 最大日志条数
+     */
+    public static final int LOGS_MAX = 512;
+
+    public static final LogRingBuffer LOG_BUFFER = new LogRingBuffer(LOGS_MAX);
 
     public static void loadLogback() {
         Config config = ConfigUtil.CONFIG;
@@ -59,23 +62,7 @@ public class LogUtil {
             file.addFilter(new AbstractMatcherFilter<>() {
                 @Override
                 public FilterReply decide(ILoggingEvent event) {
-                    Instant instant = event.getInstant();
-                    String date = DateUtil.format(new Date(instant.toEpochMilli()), DatePattern.NORM_DATETIME_PATTERN);
-                    String level = event.getLevel().toString();
-                    String loggerName = event.getLoggerName();
-                    String formattedMessage = event.getFormattedMessage();
-                    String threadName = event.getThreadName();
-                    StringBuilder log = new StringBuilder(StrFormatter.format("{} {} [{}] {} - {}", date, level, threadName, loggerName, formattedMessage));
-                    IThrowableProxy throwableProxy = event.getThrowableProxy();
-                    addThrowableMsg(log, throwableProxy);
-                    Log logEntity = new Log()
-                            .setMessage(log.toString())
-                            .setLevel(level)
-                            .setLoggerName(loggerName)
-                            .setThreadName(threadName);
-                    synchronized (LOG_LIST) {
-                        LOG_LIST.add(logEntity);
-                    }
+                    LOG_BUFFER.add(event);
                     return FilterReply.NEUTRAL;
                 }
             });
@@ -86,6 +73,33 @@ public class LogUtil {
         }
     }
 
+    /**
+     * 获取日志
+     *
+     * @param since 只返回此序号之后的日志, 0 为全部
+     * @return 日志
+     */
+    public static List<Log> getLogs(long since) {
+        int logsMax = Math.min(ConfigUtil.CONFIG.getLogsMax(), LOGS_MAX);
+        return LOG_BUFFER.read(since, logsMax, entry -> entry.getFormatted(LogUtil::toLog));
+    }
+
+    private static Log toLog(LogRingBuffer.Entry entry) {
+        String date = DateUtil.format(new Date(entry.getTimeStamp()), DatePattern.NORM_DATETIME_PATTERN);
+        String level = entry.getLevel();
+        String loggerName = entry.getLoggerName();
+        String threadName = entry.getThreadName();
+        String message = entry.getMessage();
+        StringBuilder log = new StringBuilder(StrFormatter.format("{} {} [{}] {} - {}", date, level, threadName, loggerName, message));
+        addThrowableMsg(log, entry.getThrowableProxy());
+        return new Log()
+                .setSeq(entry.getSeq())
+                .setMessage(log.toString())
+                .setLevel(level)
+                .setLoggerName(loggerName)
+                .setThreadName(threadName);
+    }
+
     @SneakyThrows
     public static void addThrowableMsg(StringBuilder log, IThrowableProxy throwableProxy) {
         if (Objects.isNull(throwableProxy)) {
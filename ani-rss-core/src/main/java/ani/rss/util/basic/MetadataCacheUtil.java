@@ -0,0 +1,276 @@
+package ani.rss.util.basic;
+
+import ani.rss.commons.FileUtils;
+import ani.rss.util.other.ConfigUtil;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.db.DbUtil;
+import cn.hutool.http.Header;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.sql.*;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 元数据缓存 (Bangumi/TMDB/Mikan)
+ * <p>
+ * 保存到 database.db, 重启后依然有效。
+ * 未过期时直接返回; 过期但在 stale 时间内时先返回旧数据, 后台刷新;
+ * 超出 stale 时间后同步刷新, 请求带上 ETag/Last-Modified, 304 时沿用旧数据。
+ * 刷新失败时有旧数据则返回旧数据
+ */
+@Slf4j
+public class MetadataCacheUtil {
+    private static final String TABLE_NAME = "METADATA_CACHES";
+
+    /**
+     * 后台刷新, 队列满时丢弃 (下次访问会再次触发)
+     */
+    private static final ExecutorService EXECUTOR_SERVICE = ExecutorBuilder.create()
+            .setCorePoolSize(1)
+            .setMaxPoolSize(1)
+            .setWorkQueue(new LinkedBlockingQueue<>(256))
+            .setHandler(new ThreadPoolExecutor.DiscardPolicy())
+            .build();
+
+    /**
+     * 正在后台刷新的 key
+     */
+    private static final Set<String> REFRESHING = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 保留时间, 不小于各数据源的 有效时间 + stale 时间, 超出后删除
+     */
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(8);
+
+    /**
+     * 清理间隔
+     */
+    private static final long PRUNE_INTERVAL = TimeUnit.DAYS.toMillis(1);
+
+    private static Connection connection;
+
+    private static long lastPruneTime = 0;
+
+    private static synchronized void connection() {
+        if (Objects.nonNull(connection)) {
+            return;
+        }
+
+        File configDir = ConfigUtil.getConfigDir();
+        String absolutePath = FileUtils.getAbsolutePath(configDir);
+        try {
+            Class.forName("org.sqlite.JDBC");
+            connection = DriverManager.getConnection(StrFormatter.format("jdbc:sqlite:{}/database.db", absolutePath));
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode = WAL");
+                statement.execute("PRAGMA busy_timeout = 5000");
+                String sql = StrFormatter.format("CREATE TABLE IF NOT EXISTS {} " +
+                        "(K TEXT PRIMARY KEY, V TEXT, ETAG TEXT, LAST_MODIFIED TEXT, TIME INTEGER)", TABLE_NAME);
+                statement.execute(sql);
+            }
+            prune();
+
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> DbUtil.close(connection)));
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 获取 HTTP 响应内容
+     *
+     * @param key      key
+     * @param ttl      有效时间 (毫秒)
+     * @param staleTtl 过期后仍可先返回旧数据的时间 (毫秒)
+     * @param request  请求, 非 2xx/304 时视为失败
+     * @return 响应内容
+     */
+    public static String getBody(String key, long ttl, long staleTtl, Supplier<HttpRequest> request) {
+        return get(key, ttl, staleTtl, row -> revalidate(key, row, request));
+    }
+
+    /**
+     * 不使用缓存, 立即请求并更新缓存
+     * <p>
+     * 有旧数据时带上 ETag/Last-Modified, 304 时沿用旧数据
+     *
+     * @param key     key
+     * @param request 请求, 非 2xx/304 时视为失败
+     * @return 响应内容
+     */
+    public static String refreshBody(String key, Supplier<HttpRequest> request) {
+        return revalidate(key, find(key), request);
+    }
+
+    /**
+     * 获取缓存的值, 用于无法接管 HTTP 请求的数据 (如 TMDB)
+     *
+     * @param key      key
+     * @param ttl      有效时间 (毫秒)
+     * @param staleTtl 过期后仍可先返回旧数据的时间 (毫秒)
+     * @param loader   加载, 返回 null 时不缓存
+     * @return 值
+     */
+    public static String getValue(String key, long ttl, long staleTtl, Supplier<String> loader) {
+        return get(key, ttl, staleTtl, row -> {
+            String value = loader.get();
+            if (Objects.nonNull(value)) {
+                put(key, new Row(value, null, null, System.currentTimeMillis()));
+            }
+            return value;
+        });
+    }
+
+    private static String get(String key, long ttl, long staleTtl, Loader loader) {
+        Row row = find(key);
+        if (Objects.isNull(row)) {
+            return loader.load(null);
+        }
+
+        long age = System.currentTimeMillis() - row.time;
+        if (age < ttl) {
+            return row.value;
+        }
+
+        if (age < ttl + staleTtl) {
+            refreshAsync(key, row, loader);
+            return row.value;
+        }
+
+        try {
+            String value = loader.load(row);
+            return Objects.isNull(value) ? row.value : value;
+        } catch (Exception e) {
+            log.warn("刷新缓存失败, 使用旧数据 {} {}", key, e.getMessage());
+            return row.value;
+        }
+    }
+
+    private static void refreshAsync(String key, Row row, Loader loader) {
+        if (!REFRESHING.add(key)) {
+            return;
+        }
+        try {
+            EXECUTOR_SERVICE.execute(() -> {
+                try {
+                    loader.load(row);
+                } catch (Exception e) {
+                    log.warn("后台刷新缓存失败 {} {}", key, e.getMessage());
+                } finally {
+                    REFRESHING.remove(key);
+                }
+            });
+        } catch (Exception e) {
+            REFRESHING.remove(key);
+        }
+    }
+
+    /**
+     * 发起请求, 有旧数据时带上 ETag/Last-Modified
+     *
+     * @param key     key
+     * @param row     旧数据
+     * @param request 请求
+     * @return 响应内容
+     */
+    private static String revalidate(String key, Row row, Supplier<HttpRequest> request) {
+        HttpRequest httpRequest = request.get();
+        if (Objects.nonNull(row)) {
+            if (StrUtil.isNotBlank(row.etag)) {
+                httpRequest.header("If-None-Match", row.etag);
+            }
+            if (StrUtil.isNotBlank(row.lastModified)) {
+                httpRequest.header("If-Modified-Since", row.lastModified);
+            }
+        }
+        return httpRequest.thenFunction(res -> {
+            long now = System.currentTimeMillis();
+            if (Objects.nonNull(row) && res.getStatus() == HttpStatus.HTTP_NOT_MODIFIED) {
+                put(key, new Row(row.value, row.etag, row.lastModified, now));
+                return row.value;
+            }
+            HttpReq.assertStatus(res);
+            String body = res.body();
+            put(key, new Row(body, res.header(Header.ETAG), res.header("Last-Modified"), now));
+            return body;
+        });
+    }
+
+    private static synchronized Row find(String key) {
+        connection();
+        String sql = StrFormatter.format("SELECT V, ETAG, LAST_MODIFIED, TIME FROM {} WHERE K = ?", TABLE_NAME);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new Row(
+                        resultSet.getString(1),
+                        resultSet.getString(2),
+                        resultSet.getString(3),
+                        resultSet.getLong(4)
+                );
+            }
+        } catch (SQLException e) {
+            log.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private static synchronized void put(String key, Row row) {
+        connection();
+        String sql = StrFormatter.format("INSERT OR REPLACE INTO {} (K, V, ETAG, LAST_MODIFIED, TIME) VALUES (?, ?, ?, ?, ?)", TABLE_NAME);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, key);
+            statement.setString(2, row.value);
+            statement.setString(3, row.etag);
+            statement.setString(4, row.lastModified);
+            statement.setLong(5, row.time);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            log.error(e.getMessage(), e);
+        }
+        if (System.currentTimeMillis() - lastPruneTime > PRUNE_INTERVAL) {
+            prune();
+        }
+    }
+
+    /**
+     * 删除超出保留时间的缓存
+     */
+    private static synchronized void prune() {
+        lastPruneTime = System.currentTimeMillis();
+        String sql = StrFormatter.format("DELETE FROM {} WHERE TIME < ?", TABLE_NAME);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, lastPruneTime - MAX_AGE);
+            int count = statement.executeUpdate();
+            if (count > 0) {
+                log.debug("清理过期元数据缓存 {} 条", count);
+            }
+        } catch (SQLException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    private interface Loader {
+        String load(Row row);
+    }
+
+    private record Row(String value, String etag, String lastModified, long time) {
+    }
+}
@@ -0,0 +1,109 @@
+package ani.rss.util.basic;
+
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 host 限流 (令牌桶)
+ * <p>
+ * 代替请求前的固定 sleep: 请求稀疏时不等待, 连续请求时按设定的速率排队
+ */
+@Slf4j
+public class RateLimiter {
+    private static final Map<String, Bucket> BUCKET_MAP = new ConcurrentHashMap<>();
+
+    static {
+        // bgm 接口流控较严格
+        setRate("api.bgm.tv", 2, 2);
+        setRate("bgm.tv", 2, 2);
+        setRate("next.bgm.tv", 2, 2);
+    }
+
+    /**
+     * 设置速率
+     *
+     * @param key              host
+     * @param permitsPerSecond 每秒请求数
+     * @param burst            允许的突发请求数
+     */
+    public static void setRate(String key, double permitsPerSecond, int burst) {
+        BUCKET_MAP.put(key, new Bucket(permitsPerSecond, burst));
+    }
+
+    /**
+     * 获取许可, 未设置速率的 host 直接返回
+     *
+     * @param key host
+     */
+    public static void acquire(String key) {
+        if (StrUtil.isBlank(key)) {
+            return;
+        }
+        Bucket bucket = BUCKET_MAP.get(key);
+        if (Objects.isNull(bucket)) {
+            return;
+        }
+        wait(key, bucket.reserve());
+    }
+
+    /**
+     * 获取许可, 首次使用时按参数创建
+     *
+     * @param key              key
+     * @param permitsPerSecond 每秒请求数
+     * @param burst            允许的突发请求数
+     */
+    public static void acquire(String key, double permitsPerSecond, int burst) {
+        Bucket bucket = BUCKET_MAP.computeIfAbsent(key, k -> new Bucket(permitsPerSecond, burst));
+        wait(key, bucket.reserve());
+    }
+
+    private static void wait(String key, long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        log.debug("限流 {} 等待 {}ms", key, millis);
+        ThreadUtil.sleep(millis);
+    }
+
+    private static class Bucket {
+        /**
+         * 每个令牌的间隔 (纳秒)
+         */
+        private final double interval;
+        private final int burst;
+        private double tokens;
+        private long lastTime;
+
+        private Bucket(double permitsPerSecond, int burst) {
+            this.interval = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+            this.burst = Math.max(burst, 1);
+            this.tokens = this.burst;
+            this.lastTime = System.nanoTime();
+        }
+
+        /**
+         * 预留一个令牌
+         *
+         * @return 需要等待的时间 (纳秒)
+         */
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastTime) / interval);
+            lastTime = now;
+            tokens -= 1;
+            if (tokens >= 0) {
+                return 0;
+            }
+            // 令牌不足时预支, 之后的请求顺延
+            return (long) (-tokens * interval);
+        }
+    }
+}
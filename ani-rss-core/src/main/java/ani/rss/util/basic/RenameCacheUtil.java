@@ -4,27 +4,73 @@ package ani.rss.util.basic;
 import ani.rss.commons.FileUtils;
 import ani.rss.util.other.ConfigUtil;
 import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
 import cn.hutool.db.DbUtil;
-import cn.hutool.db.Entity;
-import cn.hutool.db.SqlConnRunner;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.List;
-import java.util.Objects;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 重命名缓存
+ * <p>
+ * 读取先查内存 (LRU), 未命中才查询数据库, 不存在的结果同样缓存。
+ * 写入先更新内存, 再合并为一个事务批量写入数据库 (WAL)
  */
 @Slf4j
 public class RenameCacheUtil {
     private static final String TABLE_NAME = "RENAME_CACHES";
+
+    /**
+     * 内存缓存容量
+     */
+    private static final int CAPACITY = 2048;
+
+    /**
+     * 写入延迟 (毫秒), 期间的写入合并为一个事务
+     */
+    private static final long FLUSH_DELAY = 500;
+
+    /**
+     * 待写入数量达到后立即写入
+     */
+    private static final int BATCH_SIZE = 128;
+
+    /**
+     * 数据库中不存在
+     */
+    private static final String ABSENT = new String();
+
+    private static final Map<String, String> MEMORY = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    /**
+     * 待写入, 值为 null 时删除
+     */
+    private static final Map<String, String> PENDING = new LinkedHashMap<>();
+
+    private static final AtomicBoolean FLUSH_SCHEDULED = new AtomicBoolean(false);
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            ThreadFactoryBuilder.create()
+                    .setNamePrefix("rename-cache-")
+                    .setDaemon(true)
+                    .build()
+    );
+
     private static Connection connection;
-    private static SqlConnRunner sqlConnRunner;
+    private static PreparedStatement selectStatement;
+    private static PreparedStatement upsertStatement;
+    private static PreparedStatement deleteStatement;
 
     private static synchronized void connection() {
         if (Objects.nonNull(connection)) {
@@ -37,61 +83,161 @@ public class RenameCacheUtil {
             Class.forName("org.sqlite.JDBC");
             connection = DriverManager.getConnection(StrFormatter.format("jdbc:sqlite:{}/database.db", absolutePath));
 
-            Statement statement = connection.createStatement();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode = WAL");
+                statement.execute("PRAGMA synchronous = NORMAL");
+                statement.execute("PRAGMA busy_timeout = 5000");
 
-            String sql = StrFormatter.format("CREATE TABLE IF NOT EXISTS {} (K TEXT PRIMARY KEY, V TEXT)", TABLE_NAME);
-            statement.execute(sql);
+                String sql = StrFormatter.format("CREATE TABLE IF NOT EXISTS {} (K TEXT PRIMARY KEY, V TEXT)", TABLE_NAME);
+                statement.execute(sql);
+            }
 
-            sqlConnRunner = DbUtil.newSqlConnRunner(connection);
+            selectStatement = connection.prepareStatement(
+                    StrFormatter.format("SELECT V FROM {} WHERE K = ?", TABLE_NAME));
+            upsertStatement = connection.prepareStatement(
+                    StrFormatter.format("INSERT INTO {} (K, V) VALUES (?, ?) ON CONFLICT(K) DO UPDATE SET V = excluded.V", TABLE_NAME));
+            deleteStatement = connection.prepareStatement(
+                    StrFormatter.format("DELETE FROM {} WHERE K = ?", TABLE_NAME));
 
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> DbUtil.close(connection)));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                flush();
+                DbUtil.close(connection);
+            }));
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             throw new RuntimeException(e);
         }
     }
 
-    public static synchronized void put(String key, String object) {
-        remove(key);
+    public static void put(String key, String object) {
         log.debug("put => key: {}, object: {}", key, object);
-        try {
-            sqlConnRunner.insert(connection,
-                    new Entity(TABLE_NAME)
-                            .set("K", key)
-                            .set("V", object)
-            );
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        write(key, object);
+    }
+
+    public static String get(String key) {
+        log.debug("get => key: {}", key);
+        synchronized (MEMORY) {
+            String value = MEMORY.get(key);
+            if (Objects.nonNull(value)) {
+                return value == ABSENT ? null : value;
+            }
         }
+
+        String value = find(key);
+
+        synchronized (MEMORY) {
+            // 查询期间发生写入时以内存为准
+            String current = MEMORY.get(key);
+            if (Objects.nonNull(current)) {
+                return current == ABSENT ? null : current;
+            }
+            MEMORY.put(key, Objects.isNull(value) ? ABSENT : value);
+        }
+        return value;
+    }
+
+    public static void remove(String key) {
+        log.debug("remove => key: {}", key);
+        write(key, null);
     }
 
-    public static synchronized String get(String key) {
+    /**
+     * 立即写入数据库
+     */
+    public static synchronized void flush() {
+        Map<String, String> batch;
+        synchronized (MEMORY) {
+            if (PENDING.isEmpty()) {
+                return;
+            }
+            batch = new LinkedHashMap<>(PENDING);
+        }
+
         connection();
-        log.debug("get => key: {}", key);
         try {
-            List<Entity> list = sqlConnRunner.find(connection,
-                    new Entity(TABLE_NAME)
-                            .set("K", key)
-            );
-            if (list.isEmpty()) {
-                return null;
+            connection.setAutoCommit(false);
+            for (Map.Entry<String, String> entry : batch.entrySet()) {
+                String value = entry.getValue();
+                if (Objects.isNull(value)) {
+                    deleteStatement.setString(1, entry.getKey());
+                    deleteStatement.addBatch();
+                    continue;
+                }
+                upsertStatement.setString(1, entry.getKey());
+                upsertStatement.setString(2, value);
+                upsertStatement.addBatch();
             }
-            return (String) list.get(0).get("V");
+            deleteStatement.executeBatch();
+            upsertStatement.executeBatch();
+            connection.commit();
         } catch (SQLException e) {
             log.error(e.getMessage(), e);
-            throw new RuntimeException(e);
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                log.error(ex.getMessage(), ex);
+            }
+            // 保留待写入, 下次重试
+            scheduleFlush();
+            return;
+        } finally {
+            try {
+                // 失败时未执行的批量仍留在语句中, 清空以免重试时重复写入旧值
+                deleteStatement.clearBatch();
+                upsertStatement.clearBatch();
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+
+        synchronized (MEMORY) {
+            // 写入期间被再次修改的保留
+            for (Map.Entry<String, String> entry : batch.entrySet()) {
+                PENDING.remove(entry.getKey(), entry.getValue());
+            }
         }
+        log.debug("写入重命名缓存 {} 项", batch.size());
     }
 
-    public static synchronized void remove(String key) {
+    private static void write(String key, String value) {
+        int size;
+        synchronized (MEMORY) {
+            MEMORY.put(key, Objects.isNull(value) ? ABSENT : value);
+            PENDING.put(key, value);
+            size = PENDING.size();
+        }
+        if (size >= BATCH_SIZE) {
+            EXECUTOR.execute(RenameCacheUtil::flush);
+            return;
+        }
+        scheduleFlush();
+    }
+
+    private static void scheduleFlush() {
+        if (!FLUSH_SCHEDULED.compareAndSet(false, true)) {
+            return;
+        }
+        EXECUTOR.schedule(() -> {
+            FLUSH_SCHEDULED.set(false);
+            flush();
+        }, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized String find(String key) {
+        synchronized (MEMORY) {
+            if (PENDING.containsKey(key)) {
+                return PENDING.get(key);
+            }
+        }
         connection();
         try {
-            int i = sqlConnRunner.del(connection,
-                    new Entity(TABLE_NAME)
-                            .set("K", key)
-            );
-            if (i > 0) {
-                log.debug("remove => key: {}", key);
+            selectStatement.setString(1, key);
+            try (ResultSet resultSet = selectStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return resultSet.getString(1);
             }
         } catch (SQLException e) {
             log.error(e.getMessage(), e);
@@ -0,0 +1,294 @@
+package ani.rss.util.other;
+
+import ani.rss.commons.GsonStatic;
+import ani.rss.entity.Ani;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 订阅的增量保存
+ * <p>
+ * 只把变化的订阅追加到 ani.v2.journal (每行一条 put/del/order),
+ * 日志过大时合并回 ani.v2.json。短时间内的多次保存合并为一次写入
+ */
+@Slf4j
+public class AniJournalUtil {
+    public static final String FILE_NAME = "ani.v2.journal";
+
+    /**
+     * 合并保存的延迟 (毫秒)
+     */
+    private static final long FLUSH_DELAY = 1000;
+
+    /**
+     * 日志超过此大小且大于快照时合并
+     */
+    private static final long COMPACT_SIZE = 1024 * 1024;
+
+    /**
+     * 日志超过此条数时合并
+     */
+    private static final int COMPACT_COUNT = 2000;
+
+    /**
+     * 已保存的订阅 id -> md5
+     */
+    private static final Map<String, String> PERSISTED = new HashMap<>();
+
+    /**
+     * 已保存的订阅顺序
+     */
+    private static final List<String> PERSISTED_ORDER = new ArrayList<>();
+
+    private static final AtomicBoolean FLUSH_SCHEDULED = new AtomicBoolean(false);
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            ThreadFactoryBuilder.create()
+                    .setNamePrefix("ani-journal-")
+                    .setDaemon(true)
+                    .build()
+    );
+
+    private static int journalCount = 0;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(AniJournalUtil::flush));
+    }
+
+    public static File getJournalFile() {
+        File configDir = ConfigUtil.getConfigDir();
+        return new File(configDir + File.separator + FILE_NAME);
+    }
+
+    /**
+     * 读取快照并重放日志
+     *
+     * @param snapshot 快照内容
+     * @return 订阅
+     */
+    public static synchronized List<Ani> load(String snapshot) {
+        List<Ani> anis = new ArrayList<>(GsonStatic.fromJsonList(snapshot, Ani.class));
+
+        File journalFile = getJournalFile();
+        if (!journalFile.exists()) {
+            return anis;
+        }
+
+        int count = 0;
+        for (String line : FileUtil.readUtf8Lines(journalFile)) {
+            if (StrUtil.isBlank(line)) {
+                continue;
+            }
+            JsonObject jsonObject;
+            try {
+                jsonObject = GsonStatic.fromJson(line, JsonObject.class);
+            } catch (Exception e) {
+                // 写入中断的最后一行
+                log.warn("订阅日志损坏, 忽略之后的内容 {}", journalFile);
+                break;
+            }
+            replay(anis, jsonObject);
+            count++;
+        }
+        log.debug("重放订阅日志 共{}条", count);
+        return anis;
+    }
+
+    private static void replay(List<Ani> anis, JsonObject jsonObject) {
+        String op = jsonObject.get("op").getAsString();
+        switch (op) {
+            case "put" -> {
+                Ani ani = GsonStatic.fromJson(jsonObject.get("ani"), Ani.class);
+                int index = indexOf(anis, ani.getId());
+                if (index < 0) {
+                    anis.add(ani);
+                } else {
+                    anis.set(index, ani);
+                }
+            }
+            case "del" -> {
+                int index = indexOf(anis, jsonObject.get("id").getAsString());
+                if (index > -1) {
+                    anis.remove(index);
+                }
+            }
+            case "order" -> {
+                Map<String, Integer> order = new HashMap<>();
+                JsonArray ids = jsonObject.getAsJsonArray("ids");
+                for (int i = 0; i < ids.size(); i++) {
+                    order.put(ids.get(i).getAsString(), i);
+                }
+                anis.sort(Comparator.comparingInt(it -> order.getOrDefault(it.getId(), Integer.MAX_VALUE)));
+            }
+            default -> log.warn("未知的订阅日志 {}", op);
+        }
+    }
+
+    private static int indexOf(List<Ani> anis, String id) {
+        for (int i = 0; i < anis.size(); i++) {
+            if (Objects.equals(anis.get(i).getId(), id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 延迟保存, 期间的多次调用只写入一次
+     */
+    public static void sync() {
+        if (!FLUSH_SCHEDULED.compareAndSet(false, true)) {
+            return;
+        }
+        EXECUTOR.schedule(() -> {
+            FLUSH_SCHEDULED.set(false);
+            flush();
+        }, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即把变化的订阅写入日志
+     */
+    public static synchronized void flush() {
+        List<Ani> anis = new ArrayList<>(AniUtil.ANI_LIST);
+
+        Map<String, String> current = new LinkedHashMap<>();
+        Map<String, JsonElement> changed = new LinkedHashMap<>();
+        for (Ani ani : anis) {
+            String id = ani.getId();
+            if (StrUtil.isBlank(id) || current.containsKey(id)) {
+                // 无法按 id 区分, 直接保存完整快照
+                compact(anis);
+                return;
+            }
+            JsonElement jsonElement = GsonStatic.toJsonTree(ani);
+            String md5 = SecureUtil.md5(jsonElement.toString());
+            current.put(id, md5);
+            if (!md5.equals(PERSISTED.get(id))) {
+                changed.put(id, jsonElement);
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (String id : PERSISTED.keySet()) {
+            if (current.containsKey(id)) {
+                continue;
+            }
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.addProperty("op", "del");
+            jsonObject.addProperty("id", id);
+            lines.add(jsonObject.toString());
+        }
+        for (JsonElement jsonElement : changed.values()) {
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.addProperty("op", "put");
+            jsonObject.add("ani", jsonElement);
+            lines.add(jsonObject.toString());
+        }
+
+        // 重放 put/del 后的顺序与当前不同时记录顺序
+        List<String> order = new ArrayList<>(PERSISTED_ORDER);
+        order.retainAll(current.keySet());
+        for (String id : changed.keySet()) {
+            if (!PERSISTED.containsKey(id)) {
+                order.add(id);
+            }
+        }
+        List<String> currentOrder = new ArrayList<>(current.keySet());
+        if (!order.equals(currentOrder)) {
+            JsonArray ids = new JsonArray();
+            currentOrder.forEach(ids::add);
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.addProperty("op", "order");
+            jsonObject.add("ids", ids);
+            lines.add(jsonObject.toString());
+        }
+
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        File journalFile = getJournalFile();
+        if (journalCount + lines.size() > COMPACT_COUNT) {
+            compact(anis);
+            return;
+        }
+        long snapshotLength = AniUtil.getAniFile().length();
+        if (journalFile.length() > Math.max(COMPACT_SIZE, snapshotLength)) {
+            compact(anis);
+            return;
+        }
+
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(journalFile, true);
+            outputStream.write((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+            outputStream.getFD().sync();
+        } catch (Exception e) {
+            log.error("保存订阅日志失败 {}", journalFile);
+            log.error(e.getMessage(), e);
+            compact(anis);
+            return;
+        } finally {
+            IoUtil.close(outputStream);
+        }
+
+        journalCount += lines.size();
+        PERSISTED.clear();
+        PERSISTED.putAll(current);
+        PERSISTED_ORDER.clear();
+        PERSISTED_ORDER.addAll(currentOrder);
+        log.debug("保存订阅 {} 条变化", lines.size());
+    }
+
+    /**
+     * 把全部订阅写入快照并清空日志
+     *
+     * @param anis 订阅
+     */
+    public static synchronized void compact(List<Ani> anis) {
+        File configFile = AniUtil.getAniFile();
+        log.debug("保存订阅 {}", configFile);
+        try {
+            String json = GsonStatic.toJson(anis);
+            File temp = new File(configFile + ".temp");
+            FileUtil.del(temp);
+            FileUtil.writeUtf8String(json, temp);
+            FileUtil.rename(temp, configFile.getName(), true);
+            FileUtil.del(getJournalFile());
+            log.debug("保存成功 {}", configFile);
+        } catch (Exception e) {
+            log.error("保存失败 {}", configFile);
+            log.error(e.getMessage(), e);
+            return;
+        }
+
+        journalCount = 0;
+        PERSISTED.clear();
+        PERSISTED_ORDER.clear();
+        for (Ani ani : anis) {
+            String id = ani.getId();
+            if (StrUtil.isBlank(id)) {
+                continue;
+            }
+            PERSISTED.put(id, SecureUtil.md5(GsonStatic.toJsonTree(ani).toString()));
+            PERSISTED_ORDER.add(id);
+        }
+    }
+}
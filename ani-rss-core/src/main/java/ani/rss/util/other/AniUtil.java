@@ -25,6 +25,7 @@ import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 public class AniUtil {
@@ -32,6 +33,11 @@ public class AniUtil {
     public static final List<Ani> ANI_LIST = new CopyOnWriteArrayList<>();
     public static final String FILE_NAME = "ani.v2.json";
 
+    /**
+     * 订阅版本, 每次加载或保存后递增
+     */
+    private static final AtomicLong VERSION = new AtomicLong();
+
     /**
      * 获取订阅配置文件
      *
@@ -52,7 +58,7 @@ public class AniUtil {
             FileUtil.writeUtf8String(GsonStatic.toJson(ANI_LIST), configFile);
         }
         String s = FileUtil.readUtf8String(configFile);
-        List<Ani> anis = GsonStatic.fromJsonList(s, Ani.class);
+        List<Ani> anis = AniJournalUtil.load(s);
 
         CopyOptions copyOptions = CopyOptions
                 .create()
@@ -64,26 +70,29 @@ public class AniUtil {
             BeanUtil.copyProperties(newAni, ani, copyOptions);
             ANI_LIST.add(ani);
         }
+        VERSION.incrementAndGet();
         log.debug("加载订阅 共{}项", ANI_LIST.size());
+
+        // 合并日志
+        AniJournalUtil.compact(ANI_LIST);
     }
 
     /**
-     * 将订阅配置保存到磁盘
+     * 将订阅配置保存到磁盘, 短时间内的多次调用合并为一次写入
      */
-    public static synchronized void sync() {
-        File configFile = getAniFile();
-        log.debug("保存订阅 {}", configFile);
-        try {
-            String json = GsonStatic.toJson(ANI_LIST);
-            File temp = new File(configFile + ".temp");
-            FileUtil.del(temp);
-            FileUtil.writeUtf8String(json, temp);
-            FileUtil.rename(temp, configFile.getName(), true);
-            log.debug("保存成功 {}", configFile);
-        } catch (Exception e) {
-            log.error("保存失败 {}", configFile);
-            log.error(e.getMessage(), e);
-        }
+    public static void sync() {
+        DownloadService.clearDownloadPathIndex();
+        VERSION.incrementAndGet();
+        AniJournalUtil.sync();
+    }
+
+    /**
+     * 订阅版本, 可用于判断订阅是否发生变化
+     *
+     * @return 版本
+     */
+    public static long getVersion() {
+        return VERSION.get();
     }
 
     /**
@@ -8,13 +8,13 @@ import ani.rss.entity.Config;
 import ani.rss.enums.BgmTokenTypeEnum;
 import ani.rss.service.DownloadService;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.MetadataCacheUtil;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.lang.Opt;
 import cn.hutool.core.net.url.UrlBuilder;
 import cn.hutool.core.text.StrFormatter;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.*;
 import cn.hutool.http.ContentType;
 import cn.hutool.http.Header;
@@ -32,6 +32,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * BGM
@@ -40,6 +41,21 @@ import java.util.function.Function;
 public class BgmUtil {
     private static final String host = "https://api.bgm.tv";
 
+    /**
+     * 条目信息缓存时间
+     */
+    private static final long SUBJECT_TTL = TimeUnit.HOURS.toMillis(12);
+
+    /**
+     * 剧集列表缓存时间, 放送中的番剧会新增剧集
+     */
+    private static final long EPISODES_TTL = TimeUnit.HOURS.toMillis(3);
+
+    /**
+     * 过期后先返回旧数据并在后台刷新的时间
+     */
+    private static final long STALE_TTL = TimeUnit.DAYS.toMillis(7);
+
     /**
      * 获取bgm名称
      *
@@ -179,7 +195,6 @@ public class BgmUtil {
         if (StrUtil.isBlank(id)) {
             id = list.get(0).getId();
         }
-        ThreadUtil.sleep(1000);
         CacheUtils.put(key, id, TimeUnit.MINUTES.toMillis(10));
         return id;
     }
@@ -212,40 +227,41 @@ public class BgmUtil {
      * @return
      */
     public static List<JsonObject> getEpisodes(String subjectId, Integer type) {
-        ThreadUtil.sleep(500);
         Objects.requireNonNull(subjectId);
-        HttpRequest httpRequest = HttpReq.get(host + "/v0/episodes");
-        setToken(httpRequest);
-
-        return httpRequest
-                .form("subject_id", subjectId)
-                .form("type", 0)
-                .form("limit", 1000)
-                .form("offset", 0)
-                .thenFunction(res -> {
-                    if (!res.isOk()) {
-                        return List.of();
-                    }
 
-                    String body = res.body();
-                    if (!JSONUtil.isTypeJSON(body)) {
-                        return List.of();
-                    }
+        String url = UrlBuilder.of(host + "/v0/episodes")
+                .addQuery("subject_id", subjectId)
+                .addQuery("type", 0)
+                .addQuery("limit", 1000)
+                .addQuery("offset", 0)
+                .toString();
 
-                    return GsonStatic.fromJson(body, JsonObject.class)
-                            .get("data")
-                            .getAsJsonArray()
-                            .asList()
-                            .stream()
-                            .map(JsonElement::getAsJsonObject)
-                            .filter(itemObject -> {
-                                if (Objects.nonNull(type)) {
-                                    return type == itemObject.get("type").getAsInt();
-                                }
-                                return true;
-                            })
-                            .toList();
-                });
+        String body;
+        try {
+            body = MetadataCacheUtil.getBody("bgm:episodes:" + subjectId, EPISODES_TTL, STALE_TTL,
+                    () -> setToken(HttpReq.get(url)));
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            return List.of();
+        }
+
+        if (!JSONUtil.isTypeJSON(body)) {
+            return List.of();
+        }
+
+        return GsonStatic.fromJson(body, JsonObject.class)
+                .get("data")
+                .getAsJsonArray()
+                .asList()
+                .stream()
+                .map(JsonElement::getAsJsonObject)
+                .filter(itemObject -> {
+                    if (Objects.nonNull(type)) {
+                        return type == itemObject.get("type").getAsInt();
+                    }
+                    return true;
+                })
+                .toList();
     }
 
     public static JsonObject me() {
@@ -512,7 +528,6 @@ public class BgmUtil {
      * @param type      0 未看过, 1 想看, 2 看过
      */
     public static void collectionsEpisodes(String episodeId, Integer type) {
-        ThreadUtil.sleep(500);
         Objects.requireNonNull(episodeId);
 
         // bgm点格子前先判断状态，防止刷屏 #142
@@ -525,9 +540,6 @@ public class BgmUtil {
             return;
         }
 
-        // 间隔 500 毫秒, 防止流控
-        ThreadUtil.sleep(500);
-
         setToken(HttpReq.put(host + "/v0/users/-/collections/-/episodes/" + episodeId))
                 .contentType(ContentType.JSON.getValue())
                 .body(GsonStatic.toJson(Map.of("type", type)))
@@ -576,9 +588,7 @@ public class BgmUtil {
      * @return
      */
     public static BgmInfo getBgmInfo(String subjectId, Boolean isCache) {
-        Function<HttpResponse, BgmInfo> fun = res -> {
-            HttpReq.assertStatus(res);
-            String body = res.body();
+        Function<String, BgmInfo> fun = body -> {
             Assert.isTrue(JSONUtil.isTypeJSON(body), "no json");
             BgmInfo bgmInfo = GsonStatic.fromJson(body, BgmInfo.class);
 
@@ -598,8 +608,7 @@ public class BgmUtil {
 
         if (!isCache) {
             // 不使用缓存
-            HttpRequest httpRequest = HttpReq.get(host + "/v0/subjects/" + subjectId);
-            return setToken(httpRequest).thenFunction(fun);
+            return fun.apply(getSubjectBody(subjectId, false));
         }
 
         AtomicReference<BgmInfo> bgmInfoAR = new AtomicReference<>();
@@ -608,11 +617,9 @@ public class BgmUtil {
         // 并行获取bgm信息
         CompletableFuture.allOf(
                 CompletableFuture.runAsync(() -> {
-                    // 不使用缓存
-                    HttpRequest httpRequest = HttpReq.get(host + "/v0/subjects/" + subjectId);
+                    // Bangumi 接口, 使用元数据缓存
                     try {
-                        BgmInfo bgmInfo = setToken(httpRequest)
-                                .thenFunction(fun);
+                        BgmInfo bgmInfo = fun.apply(getSubjectBody(subjectId, true));
                         bgmInfoAR.set(bgmInfo);
                     } catch (Exception e) {
                         log.error(e.getMessage(), e);
@@ -623,7 +630,10 @@ public class BgmUtil {
                             .get("https://bgm-cache.wushuo.top/" + subjectId.charAt(0) + "/" + subjectId + ".json");
                     try {
                         BgmInfo bgmInfo = httpRequest
-                                .thenFunction(fun);
+                                .thenFunction(res -> {
+                                    HttpReq.assertStatus(res);
+                                    return fun.apply(res.body());
+                                });
                         bgmInfoCacheAR.set(bgmInfo);
                     } catch (Exception ignored) {
                     }
@@ -639,6 +649,22 @@ public class BgmUtil {
         return bgmInfo;
     }
 
+    /**
+     * 获取条目信息
+     *
+     * @param subjectId 番剧id
+     * @param isCache   是否使用元数据缓存, 不使用时立即请求 (带 ETag 验证) 并更新缓存
+     * @return json
+     */
+    private static String getSubjectBody(String subjectId, Boolean isCache) {
+        String key = "bgm:subject:" + subjectId;
+        Supplier<HttpRequest> request = () -> setToken(HttpReq.get(host + "/v0/subjects/" + subjectId));
+        if (!isCache) {
+            return MetadataCacheUtil.refreshBody(key, request);
+        }
+        return MetadataCacheUtil.getBody(key, SUBJECT_TTL, STALE_TTL, request);
+    }
+
     public static Integer getSeasonByBgmInfo(BgmInfo bgmInfo) {
         String name = bgmInfo.getName();
         String nameCn = bgmInfo.getNameCn();
@@ -699,7 +725,7 @@ public class BgmUtil {
             httpRequest.header(Header.AUTHORIZATION, "Bearer " + bgmToken);
         }
 
-        ThreadUtil.sleep(RandomUtil.randomInt(500, 1000));
+        // 请求间隔由 RateLimiter 控制
         return httpRequest;
     }
 
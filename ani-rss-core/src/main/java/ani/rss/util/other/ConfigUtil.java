@@ -8,6 +8,7 @@ import ani.rss.entity.Login;
 import ani.rss.entity.NotificationConfig;
 import ani.rss.enums.BgmTokenTypeEnum;
 import ani.rss.enums.SortTypeEnum;
+import ani.rss.service.DownloadService;
 import ani.rss.util.basic.LogUtil;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.bean.DynaBean;
@@ -18,6 +19,7 @@ import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.func.Func1;
 import cn.hutool.core.lang.func.LambdaUtil;
 import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.ArrayUtil;
 import cn.hutool.core.util.RandomUtil;
@@ -33,6 +35,12 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -41,6 +49,35 @@ public class ConfigUtil {
     public static final Config CONFIG = new Config();
     public static final String FILE_NAME = "config.v2.json";
 
+    /**
+     * 合并保存的延迟 (毫秒)
+     */
+    private static final long FLUSH_DELAY = 500;
+
+    /**
+     * 设置版本, 每次 load/sync 后递增
+     */
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private static final AtomicBoolean FLUSH_SCHEDULED = new AtomicBoolean(false);
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            ThreadFactoryBuilder.create()
+                    .setNamePrefix("config-sync-")
+                    .setDaemon(true)
+                    .build()
+    );
+
+    /**
+     * 最后一次写入内容的 md5
+     */
+    private static String lastMd5 = "";
+
+    /**
+     * 当前 logback 使用的调试开关
+     */
+    private static Boolean logbackDebug;
+
     /*
       默认配置
      */
@@ -115,6 +152,9 @@ public class ConfigUtil {
                 .setRename(true)
                 .setRss(true)
                 .setRssTimeout(20)
+                .setRssThreads(4)
+                .setRssHostThreads(2)
+                .setRssVirtualThread(false)
                 .setWatchErrorTorrent(true)
                 .setCustomTags(new ArrayList<>())
                 .setDelayedDownload(0)
@@ -140,6 +180,8 @@ public class ConfigUtil {
                 .setStandbyRss(false)
                 .setCoexist(false)
                 .setLogsMax(128)
+                .setServerThreads(16)
+                .setServerBulkThreads(4)
                 .setDebug(false)
                 .setProcrastinatingMasterOnly(true)
                 .setProxy(false)
@@ -220,6 +262,9 @@ public class ConfigUtil {
                 .setCompletedPathTemplate(completedPathTemplate)
                 .setNotificationTemplate(notificationTemplate)
                 .setNotificationConfigList(new ArrayList<>())
+                .setNotificationQueueSize(64)
+                .setNotificationDigest(false)
+                .setNotificationDigestSeconds(30)
                 .setApiKey(apiKey)
                 .setCopyMasterToStandby(false)
                 .setSortType(SortTypeEnum.SCORE)
@@ -229,6 +274,13 @@ public class ConfigUtil {
                 .setReplace(false)
                 .setMaxFileNameLength(0)
                 .setLimitLoginAttempts(true);
+
+        // 退出前写入尚未保存的设置
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (FLUSH_SCHEDULED.get()) {
+                flush();
+            }
+        }));
     }
 
     /**
@@ -283,7 +335,10 @@ public class ConfigUtil {
                 .setIgnoreNullValue(true);
         BeanUtil.copyProperties(GsonStatic.fromJson(s, Config.class), CONFIG, copyOptions);
         format(CONFIG);
+        lastMd5 = SecureUtil.md5(s);
+        VERSION.incrementAndGet();
         LogUtil.loadLogback();
+        logbackDebug = CONFIG.getDebug();
         log.debug("加载配置文件 {}", configFile);
         TorrentUtil.load();
         ThreadUtil.execute(() -> {
@@ -297,18 +352,57 @@ public class ConfigUtil {
 
     /**
      * 将设置保存到磁盘
+     * <p>
+     * 立即生效, 写入在后台延迟进行, 短时间内的多次调用只写入一次
      */
-    public static synchronized void sync() {
+    public static void sync() {
+        DownloadService.clearDownloadPathIndex();
+        synchronized (ConfigUtil.class) {
+            ConfigUtil.format(CONFIG);
+        }
+        VERSION.incrementAndGet();
+        reloadLogback();
+
+        if (!FLUSH_SCHEDULED.compareAndSet(false, true)) {
+            return;
+        }
+        EXECUTOR.schedule(() -> {
+            FLUSH_SCHEDULED.set(false);
+            flush();
+        }, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 调试开关变化时重新加载 logback
+     * <p>
+     * 加载时会先 reset 再重新配置, 持有类锁避免多次保存交错执行
+     */
+    private static synchronized void reloadLogback() {
+        Boolean debug = CONFIG.getDebug();
+        if (Objects.equals(debug, logbackDebug)) {
+            return;
+        }
+        LogUtil.loadLogback();
+        logbackDebug = debug;
+    }
+
+    /**
+     * 立即写入, 内容未变化时跳过
+     */
+    public static synchronized void flush() {
         File configFile = getConfigFile();
-        log.debug("保存配置 {}", configFile);
         try {
-            ConfigUtil.format(CONFIG);
             String json = GsonStatic.toJson(CONFIG);
+            String md5 = SecureUtil.md5(json);
+            if (md5.equals(lastMd5)) {
+                return;
+            }
+            log.debug("保存配置 {}", configFile);
             File temp = new File(configFile + ".temp");
             FileUtil.del(temp);
             FileUtil.writeUtf8String(json, temp);
             FileUtil.rename(temp, configFile.getName(), true);
-            LogUtil.loadLogback();
+            lastMd5 = md5;
             log.debug("保存成功 {}", configFile);
         } catch (Exception e) {
             log.error("保存失败 {}", configFile);
@@ -316,6 +410,15 @@ public class ConfigUtil {
         }
     }
 
+    /**
+     * 设置版本, 可用于判断设置是否发生变化
+     *
+     * @return 版本
+     */
+    public static long getVersion() {
+        return VERSION.get();
+    }
+
     /**
      * 备份
      */
@@ -340,8 +443,8 @@ public class ConfigUtil {
         log.info("正在备份设置 {}", backupFile.getName());
 
         List<File> backupFiles = Stream.of(
-                        "files", "torrents", "database.db",
-                        AniUtil.FILE_NAME, ConfigUtil.FILE_NAME
+                        "files", "torrents", "database.db", "database.db-wal",
+                        AniUtil.FILE_NAME, AniJournalUtil.FILE_NAME, ConfigUtil.FILE_NAME
                 )
                 .map(s -> configDir + "/" + s)
                 .map(File::new)
@@ -0,0 +1,179 @@
+package ani.rss.util.other;
+
+import ani.rss.commons.GsonStatic;
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import ani.rss.service.RssPollService;
+import ani.rss.util.basic.HttpReq;
+import cn.hutool.core.lang.Pair;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.http.Header;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RSS 状态
+ * <p>
+ * 记录每个 RSS 的 ETag、Last-Modified 与内容摘要, 订阅的 RSS 未发生变化且上次已处理完成时可直接跳过
+ */
+@Slf4j
+public class FeedStateUtil {
+    private static final Map<String, FeedState> FEED_STATE_MAP = new ConcurrentHashMap<>();
+    private static final Map<String, SettledState> SETTLED_MAP = new ConcurrentHashMap<>();
+    private static final Map<String, AniHash> ANI_HASH_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 跳过的有效期, 过期后重新完整处理一次 (摸鱼检测等依赖时间的逻辑)
+     */
+    private static final long SETTLED_TIMEOUT = TimeUnit.HOURS.toMillis(6);
+
+    /**
+     * 未变化而跳过的订阅数
+     */
+    public static final AtomicLong HIT = new AtomicLong(0L);
+
+    /**
+     * 需要完整处理的订阅数
+     */
+    public static final AtomicLong MISS = new AtomicLong(0L);
+
+    /**
+     * 响应 304 的请求数
+     */
+    public static final AtomicLong NOT_MODIFIED = new AtomicLong(0L);
+
+    /**
+     * 获取 RSS
+     *
+     * @param url         地址
+     * @param conditional 携带 If-None-Match / If-Modified-Since
+     * @return 内容是否变化, 响应 304 时内容为 null
+     */
+    public static Pair<Boolean, String> fetch(String url, Boolean conditional) {
+        Config config = ConfigUtil.CONFIG;
+        FeedState state = FEED_STATE_MAP.get(url);
+        String host = RssPollService.getHost(url);
+
+        return RssPollService.host(url, () -> MetricsUtil.FEED_FETCH.labels(host).time(() -> {
+            HttpRequest req = HttpReq.get(url)
+                    .timeout(config.getRssTimeout() * 1000);
+            if (conditional && Objects.nonNull(state)) {
+                if (StrUtil.isNotBlank(state.etag)) {
+                    req.header("If-None-Match", state.etag);
+                }
+                if (StrUtil.isNotBlank(state.lastModified)) {
+                    req.header("If-Modified-Since", state.lastModified);
+                }
+            }
+            return req.thenFunction(res -> {
+                if (res.getStatus() == HttpStatus.HTTP_NOT_MODIFIED) {
+                    NOT_MODIFIED.incrementAndGet();
+                    log.debug("RSS 未变化 304 {}", url);
+                    return Pair.of(false, null);
+                }
+                HttpReq.assertStatus(res);
+                String body = res.body();
+                String hash = SecureUtil.md5(body);
+                FEED_STATE_MAP.put(url, new FeedState(res.header(Header.ETAG), res.header("Last-Modified"), hash));
+                boolean modified = Objects.isNull(state) || !hash.equals(state.hash);
+                return Pair.of(modified, body);
+            });
+        }));
+    }
+
+    /**
+     * 订阅是否已处理完成且之后未发生变化
+     *
+     * @param ani  订阅
+     * @param urls 订阅的全部 RSS
+     * @return 是否可跳过
+     */
+    public static Boolean isSettled(Ani ani, List<String> urls) {
+        SettledState settledState = SETTLED_MAP.get(ani.getId());
+        if (Objects.isNull(settledState)) {
+            return false;
+        }
+        if (System.currentTimeMillis() - settledState.time > SETTLED_TIMEOUT) {
+            return false;
+        }
+        return settledState.fingerprint.equals(fingerprint(ani, urls));
+    }
+
+    /**
+     * 记录订阅处理结果
+     *
+     * @param ani     订阅
+     * @param urls    订阅的全部 RSS
+     * @param settled 是否全部处理完成 (不存在延迟下载、数量限制等待处理的项)
+     */
+    public static void settle(Ani ani, List<String> urls, Boolean settled) {
+        String id = ani.getId();
+        if (!settled) {
+            SETTLED_MAP.remove(id);
+            return;
+        }
+        SETTLED_MAP.put(id, new SettledState(fingerprint(ani, urls), System.currentTimeMillis()));
+    }
+
+    /**
+     * 订阅、设置与 RSS 内容的指纹, 任一变化都需要重新处理
+     * <p>
+     * 设置只取版本号, 订阅的摘要在订阅保存后才重新计算
+     */
+    private static String fingerprint(Ani ani, List<String> urls) {
+        StringBuilder sb = new StringBuilder()
+                .append(aniHash(ani))
+                .append(':')
+                .append(ConfigUtil.getVersion());
+        for (String url : urls) {
+            FeedState state = FEED_STATE_MAP.get(url);
+            sb.append(':').append(Objects.isNull(state) ? "" : state.hash);
+        }
+        return sb.toString();
+    }
+
+    private static String aniHash(Ani ani) {
+        long version = AniUtil.getVersion();
+        AniHash aniHash = ANI_HASH_MAP.get(ani.getId());
+        if (Objects.nonNull(aniHash) && aniHash.ani == ani && aniHash.version == version) {
+            return aniHash.hash;
+        }
+        String hash = SecureUtil.md5(GsonStatic.toJsonTree(ani).toString());
+        ANI_HASH_MAP.put(ani.getId(), new AniHash(ani, version, hash));
+        return hash;
+    }
+
+    private static class FeedState {
+        private final String etag;
+        private final String lastModified;
+        private final String hash;
+
+        private FeedState(String etag, String lastModified, String hash) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    private static class SettledState {
+        private final String fingerprint;
+        private final long time;
+
+        private SettledState(String fingerprint, long time) {
+            this.fingerprint = fingerprint;
+            this.time = time;
+        }
+    }
+
+    private record AniHash(Ani ani, long version, String hash) {
+    }
+}
@@ -0,0 +1,244 @@
+package ani.rss.util.other;
+
+import ani.rss.entity.Item;
+import ani.rss.enums.StringEnum;
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.date.DateTime;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * RSS 流式解析
+ * <p>
+ * 使用 StAX 逐个读取 item, 不构建完整的 DOM
+ */
+@Slf4j
+public class ItemsParser {
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        // 不解析命名空间, 保持 nyaa:infoHash 这样的节点名
+        FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * 解析 RSS
+     *
+     * @param xml     RSS 内容
+     * @param newItem 模板
+     * @return 视频列表, 顺序与 RSS 相反 (旧的在前)
+     */
+    public static List<Item> parse(String xml, Item newItem) {
+        Assert.notBlank(xml, "xml is blank");
+        boolean isXml = StrUtil.startWith(xml, '<');
+        Assert.isTrue(isXml, "xml error");
+
+        List<Item> items = new ArrayList<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = FACTORY.createXMLStreamReader(new StringReader(xml));
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                if (!"item".equals(reader.getLocalName())) {
+                    continue;
+                }
+                Item item = readItem(reader, newItem);
+                if (Objects.isNull(item)) {
+                    continue;
+                }
+                items.add(item);
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("xml error: " + e.getMessage(), e);
+        } finally {
+            if (Objects.nonNull(reader)) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                }
+            }
+        }
+        Collections.reverse(items);
+        return items;
+    }
+
+    /**
+     * 读取一个 item, 结束时位于 item 的结束标签
+     *
+     * @param reader  reader
+     * @param newItem 模板
+     * @return 没有种子时返回 null
+     */
+    private static Item readItem(XMLStreamReader reader, Item newItem) throws XMLStreamException {
+        String itemTitle = "";
+        String torrent = "";
+        String length = "";
+        String infoHash = "";
+
+        String size = "0MB";
+
+        DateTime pubDate = null;
+
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            if (depth > 1) {
+                // 只处理 item 的直接子节点
+                depth++;
+                continue;
+            }
+            String name = reader.getLocalName();
+            switch (name) {
+                case "title" -> itemTitle = readText(reader);
+                case "enclosure" -> {
+                    String url = StrUtil.nullToEmpty(reader.getAttributeValue(null, "url"));
+                    length = StrUtil.nullToEmpty(reader.getAttributeValue(null, "length"));
+                    if (!NumberUtil.isLong(length)) {
+                        length = "1";
+                    }
+                    torrent = url;
+                    if (ReUtil.contains(StringEnum.MAGNET_REG, url)) {
+                        infoHash = ReUtil.get(StringEnum.MAGNET_REG, url, 1);
+                    } else {
+                        infoHash = FileUtil.mainName(torrent);
+                    }
+                    depth++;
+                }
+                case "guid" -> {
+                    String text = readText(reader);
+                    if (ReUtil.isMatch("^([a-z]|[0-9])+$", text)) {
+                        infoHash = text;
+                    }
+                }
+                case "nyaa:infoHash" -> infoHash = readText(reader);
+                case "nyaa:size" -> size = readText(reader);
+                case "pubDate" -> {
+                    String text = readText(reader);
+                    try {
+                        pubDate = DateUtil.parse(text, DatePattern.HTTP_DATETIME_PATTERN);
+                    } catch (Exception ignored) {
+                    }
+                }
+                case "torrent" -> {
+                    DateTime torrentPubDate = readTorrentPubDate(reader);
+                    if (Objects.nonNull(torrentPubDate)) {
+                        pubDate = torrentPubDate;
+                    }
+                }
+                case "link" -> {
+                    String link = readText(reader);
+                    if (link.endsWith(".torrent")) {
+                        torrent = link;
+                    }
+                }
+                default -> depth++;
+            }
+        }
+
+        if (StrUtil.isBlank(torrent)) {
+            return null;
+        }
+
+        try {
+            if (StrUtil.isNotBlank(length) && size.equals("0MB")) {
+                Double l = Long.parseLong(length) / 1024.0 / 1024;
+                size = NumberUtil.decimalFormat("0.00", l) + "MB";
+            }
+        } catch (Exception e) {
+            log.warn(e.getMessage());
+        }
+
+        if (StrUtil.isNotBlank(infoHash)) {
+            infoHash = infoHash.toLowerCase();
+            infoHash = URLUtil.decode(infoHash);
+        }
+
+        return ObjectUtil.clone(newItem)
+                .setEpisode(1.0)
+                .setTitle(itemTitle)
+                .setReName(itemTitle)
+                .setTorrent(torrent)
+                .setInfoHash(infoHash)
+                .setSize(size)
+                .setPubDate(pubDate);
+    }
+
+    /**
+     * 读取 mikan 的 torrent/pubDate, 结束时位于 torrent 的结束标签
+     *
+     * @param reader reader
+     * @return 发布时间
+     */
+    private static DateTime readTorrentPubDate(XMLStreamReader reader) throws XMLStreamException {
+        DateTime pubDate = null;
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            if (depth == 1 && "pubDate".equals(reader.getLocalName()) && Objects.isNull(pubDate)) {
+                String text = readText(reader).replaceAll("\\.\\d+$", "");
+                try {
+                    pubDate = DateUtil.parse(text, DatePattern.UTC_SIMPLE_PATTERN);
+                } catch (Exception ignored) {
+                }
+                continue;
+            }
+            depth++;
+        }
+        return pubDate;
+    }
+
+    /**
+     * 读取节点文本, 与 DOM 的 getTextContent 一致会包含子节点文本, 结束时位于该节点的结束标签
+     *
+     * @param reader reader
+     * @return 文本
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT -> depth++;
+                case XMLStreamConstants.END_ELEMENT -> depth--;
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA,
+                     XMLStreamConstants.SPACE, XMLStreamConstants.ENTITY_REFERENCE -> sb.append(reader.getText());
+                default -> {
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
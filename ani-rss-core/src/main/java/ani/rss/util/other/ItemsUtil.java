@@ -6,25 +6,19 @@ import ani.rss.entity.Config;
 import ani.rss.entity.Item;
 import ani.rss.entity.StandbyRss;
 import ani.rss.enums.NotificationStatusEnum;
-import ani.rss.enums.StringEnum;
-import ani.rss.util.basic.HttpReq;
+import ani.rss.other.FilterSet;
+import ani.rss.service.RssPollService;
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.date.DatePattern;
 import cn.hutool.core.date.DateTime;
 import cn.hutool.core.date.DateUnit;
 import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.lang.Assert;
+import cn.hutool.core.lang.Pair;
 import cn.hutool.core.text.StrFormatter;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.*;
-import cn.hutool.http.HttpResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.w3c.dom.*;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 
 
 @Slf4j
@@ -36,19 +30,48 @@ public class ItemsUtil {
      * @param ani
      * @return
      */
-    public static synchronized List<Item> getItems(Ani ani) {
+    public static List<Item> getItems(Ani ani) {
+        return getItems(ani, false);
+    }
+
+    /**
+     * 获取视频列表
+     *
+     * @param ani
+     * @param skipUnchanged RSS 未发生变化且上次已处理完成时返回 null
+     * @return
+     */
+    public static List<Item> getItems(Ani ani, Boolean skipUnchanged) {
         String url = ani.getUrl();
 
         Config config = ConfigUtil.CONFIG;
 
-        String s = HttpReq.get(url)
-                .timeout(config.getRssTimeout() * 1000)
-                .thenFunction(res -> {
-                    HttpReq.assertStatus(res);
-                    return res.body();
-                });
+        List<String> urls = getUrls(ani);
+        Map<String, String> bodyMap = new HashMap<>();
+
+        if (skipUnchanged) {
+            boolean modified = false;
+            for (String u : urls) {
+                Pair<Boolean, String> pair = FeedStateUtil.fetch(u, true);
+                if (Objects.nonNull(pair.getValue())) {
+                    bodyMap.put(u, pair.getValue());
+                }
+                if (pair.getKey()) {
+                    modified = true;
+                }
+            }
+            if (!modified && FeedStateUtil.isSettled(ani, urls)) {
+                FeedStateUtil.HIT.incrementAndGet();
+                log.debug("{} RSS 未发生变化, 跳过", ani.getTitle());
+                return null;
+            }
+            FeedStateUtil.MISS.incrementAndGet();
+        }
+
+        String s = getXml(url, bodyMap);
         String subgroup = StrUtil.blankToDefault(ani.getSubgroup(), "未知字幕组");
-        List<Item> items = new ArrayList<>(ItemsUtil.getItems(ani, s, new Item().setSubgroup(subgroup))
+        List<Item> items = new ArrayList<>(MetricsUtil.FEED_PARSE.labels(RssPollService.getHost(url))
+                .time(() -> ItemsUtil.getItems(ani, s, new Item().setSubgroup(subgroup)))
                 .stream()
                 .peek(item -> item.setMaster(true))
                 .toList());
@@ -60,14 +83,12 @@ public class ItemsUtil {
 
         List<StandbyRss> standbyRssList = ani.getStandbyRssList();
         for (StandbyRss rss : standbyRssList) {
-            ThreadUtil.sleep(1000);
-            s = HttpReq.get(rss.getUrl())
-                    .timeout(config.getRssTimeout() * 1000)
-                    .thenFunction(HttpResponse::body);
-            subgroup = StrUtil.blankToDefault(rss.getLabel(), "未知字幕组");
+            String standbyXml = getXml(rss.getUrl(), bodyMap);
+            String standbySubgroup = StrUtil.blankToDefault(rss.getLabel(), "未知字幕组");
             Ani clone = ObjUtil.clone(ani);
             clone.setOffset(rss.getOffset());
-            items.addAll(ItemsUtil.getItems(clone, s, new Item().setSubgroup(subgroup))
+            items.addAll(MetricsUtil.FEED_PARSE.labels(RssPollService.getHost(rss.getUrl()))
+                    .time(() -> ItemsUtil.getItems(clone, standbyXml, new Item().setSubgroup(standbySubgroup)))
                     .stream()
                     .peek(item -> item.setMaster(false))
                     .toList());
@@ -83,6 +104,39 @@ public class ItemsUtil {
         return items;
     }
 
+    /**
+     * 获取订阅的全部 RSS 地址
+     *
+     * @param ani
+     * @return
+     */
+    public static List<String> getUrls(Ani ani) {
+        List<String> urls = new ArrayList<>();
+        urls.add(ani.getUrl());
+        if (!ConfigUtil.CONFIG.getStandbyRss()) {
+            return urls;
+        }
+        for (StandbyRss rss : ani.getStandbyRssList()) {
+            urls.add(rss.getUrl());
+        }
+        return urls;
+    }
+
+    /**
+     * 获取 RSS 内容, 优先使用本次已获取到的内容
+     *
+     * @param url
+     * @param bodyMap
+     * @return
+     */
+    private static String getXml(String url, Map<String, String> bodyMap) {
+        String body = bodyMap.get(url);
+        if (Objects.nonNull(body)) {
+            return body;
+        }
+        return FeedStateUtil.fetch(url, false).getValue();
+    }
+
     /**
      * 获取视频列表
      *
@@ -91,163 +145,15 @@ public class ItemsUtil {
      * @return
      */
     public static List<Item> getItems(Ani ani, String xml, Item newItem) {
-        List<String> exclude = ani.getExclude();
-        List<String> match = ani.getMatch();
+        FilterSet filterSet = FilterSet.of(ani, newItem.getSubgroup());
 
         List<Item> items = new ArrayList<>();
 
-        Assert.notBlank(xml, "xml is blank");
-        boolean isXml = StrUtil.startWith(xml, '<');
-        Assert.isTrue(isXml, "xml error");
-
-        Document document = XmlUtil.readXML(xml);
-        Node channel = document.getElementsByTagName("channel").item(0);
-        NodeList childNodes = channel.getChildNodes();
-        Config config = ConfigUtil.CONFIG;
-        List<String> globalExcludeList = config.getExclude();
-        Boolean globalExclude = ani.getGlobalExclude();
-
-        for (int i = childNodes.getLength() - 1; i >= 0; i--) {
-            Node item = childNodes.item(i);
-            String nodeName = item.getNodeName();
-            if (!nodeName.equals("item")) {
+        for (Item addNewItem : ItemsParser.parse(xml, newItem)) {
+            // 排除、匹配、全局排除
+            if (!filterSet.test(addNewItem.getTitle())) {
                 continue;
             }
-            String itemTitle = "";
-            String torrent = "";
-            String length = "";
-            String infoHash = "";
-
-            String size = "0MB";
-
-            DateTime pubDate = null;
-
-            NodeList itemChildNodes = item.getChildNodes();
-            for (int j = 0; j < itemChildNodes.getLength(); j++) {
-                Node itemChild = itemChildNodes.item(j);
-                String itemChildNodeName = itemChild.getNodeName();
-                if (itemChildNodeName.equals("title")) {
-                    itemTitle = itemChild.getTextContent();
-                }
-
-                if (itemChildNodeName.equals("enclosure")) {
-                    NamedNodeMap attributes = itemChild.getAttributes();
-                    String url = attributes.getNamedItem("url").getNodeValue();
-                    length = Optional.of(attributes)
-                            .map(it -> it.getNamedItem("length"))
-                            .map(Node::getNodeValue)
-                            .filter(NumberUtil::isLong)
-                            .orElse("1");
-
-                    if (ReUtil.contains(StringEnum.MAGNET_REG, url)) {
-                        torrent = url;
-                        infoHash = ReUtil.get(StringEnum.MAGNET_REG, url, 1);
-                    } else {
-                        torrent = url;
-                        infoHash = FileUtil.mainName(torrent);
-                    }
-                }
-
-                if ("guid".equals(itemChildNodeName)) {
-                    if (ReUtil.isMatch("^([a-z]|[0-9])+$", itemChild.getTextContent())) {
-                        infoHash = itemChild.getTextContent();
-                    }
-                }
-
-                if ("nyaa:infoHash".equals(itemChildNodeName)) {
-                    infoHash = itemChild.getTextContent();
-                }
-                if (itemChildNodeName.equals("nyaa:size")) {
-                    size = itemChild.getTextContent();
-                }
-
-                if (itemChildNodeName.equals("pubDate")) {
-                    try {
-                        pubDate = DateUtil.parse(itemChild.getTextContent(), DatePattern.HTTP_DATETIME_PATTERN);
-                    } catch (Exception ignored) {
-                    }
-                }
-
-                if (itemChildNodeName.equals("torrent")) {
-                    try {
-                        String textContent = XmlUtil.getElement((Element) itemChild, "pubDate")
-                                .getTextContent();
-                        textContent = textContent.replaceAll("\\.\\d+$", "");
-                        pubDate = DateUtil.parse(textContent, DatePattern.UTC_SIMPLE_PATTERN);
-                    } catch (Exception ignored) {
-                    }
-                }
-
-                if (itemChildNodeName.equals("link")) {
-                    String link = itemChild.getTextContent();
-                    if (!link.endsWith(".torrent")) {
-                        continue;
-                    }
-                    torrent = link;
-                }
-
-            }
-
-            if (StrUtil.isBlank(torrent)) {
-                continue;
-            }
-
-            try {
-                if (StrUtil.isNotBlank(length) && size.equals("0MB")) {
-                    Double l = Long.parseLong(length) / 1024.0 / 1024;
-                    size = NumberUtil.decimalFormat("0.00", l) + "MB";
-                }
-            } catch (Exception e) {
-                log.warn(e.getMessage());
-            }
-
-            if (StrUtil.isNotBlank(infoHash)) {
-                infoHash = infoHash.toLowerCase();
-                infoHash = URLUtil.decode(infoHash);
-            }
-
-            Item addNewItem = ObjectUtil.clone(newItem);
-
-            addNewItem
-                    .setEpisode(1.0)
-                    .setTitle(itemTitle)
-                    .setReName(itemTitle)
-                    .setTorrent(torrent)
-                    .setInfoHash(infoHash)
-                    .setSize(size)
-                    .setPubDate(pubDate);
-
-            Function<String, String> map = s -> {
-                String subgroup = ReUtil.get(StringEnum.SUBGROUP_REG_STR, s, 1);
-                if (StrUtil.isBlank(subgroup)) {
-                    return s;
-                }
-                if (subgroup.equals(newItem.getSubgroup())) {
-                    return ReUtil.get(StringEnum.SUBGROUP_REG_STR, s, 2);
-                }
-                return "";
-            };
-
-            // 排除
-            if (!exclude.isEmpty()) {
-                if (exclude.stream().map(map).filter(StrUtil::isNotBlank).anyMatch(s -> ReUtil.contains(s, addNewItem.getTitle()))) {
-                    continue;
-                }
-            }
-
-            // 匹配
-            if (!match.isEmpty()) {
-                if (match.stream().map(map).filter(StrUtil::isNotBlank).anyMatch(s -> !ReUtil.contains(s, addNewItem.getTitle()))) {
-                    continue;
-                }
-            }
-
-            // 全局排除
-            if (globalExclude) {
-                if (globalExcludeList.stream().map(map).filter(StrUtil::isNotBlank).anyMatch(s -> ReUtil.contains(s, addNewItem.getTitle()))) {
-                    continue;
-                }
-            }
             items.add(addNewItem);
         }
 
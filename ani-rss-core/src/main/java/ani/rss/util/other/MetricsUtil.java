@@ -0,0 +1,195 @@
+package ani.rss.util.other;
+
+import ani.rss.commons.CacheUtils;
+import ani.rss.entity.RssTaskStatus;
+import ani.rss.other.Histogram;
+import ani.rss.other.NotificationLane;
+import ani.rss.service.RcloneSyncTaskService;
+import ani.rss.task.RssTask;
+
+import java.lang.management.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 运行指标
+ * <p>
+ * 耗时记录在固定桶的直方图中, 其余指标在导出时从各模块的统计中读取,
+ * 以 Prometheus 文本格式导出
+ */
+public class MetricsUtil {
+    public static final Histogram FEED_FETCH = new Histogram(
+            "ani_rss_feed_fetch_seconds", "RSS 请求耗时", "host");
+
+    public static final Histogram FEED_PARSE = new Histogram(
+            "ani_rss_feed_parse_seconds", "RSS 解析耗时 (含过滤与重命名)", "host");
+
+    public static final Histogram RENAME = new Histogram(
+            "ani_rss_rename_seconds", "重命名耗时", null);
+
+    public static final Histogram DOWNLOADER = new Histogram(
+            "ani_rss_downloader_request_seconds", "下载器请求耗时", "method");
+
+    public static final Histogram NOTIFICATION = new Histogram(
+            "ani_rss_notification_send_seconds", "通知发送耗时 (每次尝试)", "channel");
+
+    public static final Histogram SWEEP = new Histogram(
+            "ani_rss_sweep_seconds", "一轮订阅检查的耗时", null);
+
+    private static final List<Histogram> HISTOGRAMS = List.of(
+            FEED_FETCH, FEED_PARSE, RENAME, DOWNLOADER, NOTIFICATION, SWEEP
+    );
+
+    /**
+     * 导出全部指标
+     *
+     * @param sb 输出
+     */
+    public static void write(StringBuilder sb) {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.write(sb);
+        }
+        writeRss(sb);
+        writeCache(sb);
+        writeNotification(sb);
+        writeRclone(sb);
+        writeJvm(sb);
+    }
+
+    private static void writeRss(StringBuilder sb) {
+        RssTaskStatus status = RssTask.getStatus();
+        gauge(sb, "ani_rss_sweep_running", "是否正在检查订阅", status.getRunning() ? 1 : 0);
+        gauge(sb, "ani_rss_sweep_queue", "等待检查的订阅数", status.getQueueSize());
+
+        counter(sb, "ani_rss_feed_skipped_total", "未变化而跳过的订阅数", FeedStateUtil.HIT.get());
+        counter(sb, "ani_rss_feed_processed_total", "完整处理的订阅数", FeedStateUtil.MISS.get());
+        counter(sb, "ani_rss_feed_not_modified_total", "响应 304 的 RSS 请求数", FeedStateUtil.NOT_MODIFIED.get());
+    }
+
+    private static void writeCache(StringBuilder sb) {
+        List<CacheUtils.CacheStats> stats = CacheUtils.stats();
+
+        type(sb, "ani_rss_cache_hits_total", "缓存命中", "counter");
+        for (CacheUtils.CacheStats it : stats) {
+            sample(sb, "ani_rss_cache_hits_total", "namespace", it.getNamespace(), it.getHit());
+        }
+        type(sb, "ani_rss_cache_misses_total", "缓存未命中", "counter");
+        for (CacheUtils.CacheStats it : stats) {
+            sample(sb, "ani_rss_cache_misses_total", "namespace", it.getNamespace(), it.getMiss());
+        }
+        type(sb, "ani_rss_cache_evictions_total", "缓存淘汰", "counter");
+        for (CacheUtils.CacheStats it : stats) {
+            sample(sb, "ani_rss_cache_evictions_total", "namespace", it.getNamespace(), it.getEviction());
+        }
+        type(sb, "ani_rss_cache_hit_ratio", "缓存命中率", "gauge");
+        for (CacheUtils.CacheStats it : stats) {
+            long total = it.getHit() + it.getMiss();
+            double ratio = total > 0 ? (double) it.getHit() / total : 0;
+            sample(sb, "ani_rss_cache_hit_ratio", "namespace", it.getNamespace(), ratio);
+        }
+        type(sb, "ani_rss_cache_size", "缓存数量", "gauge");
+        for (CacheUtils.CacheStats it : stats) {
+            sample(sb, "ani_rss_cache_size", "namespace", it.getNamespace(), it.getSize());
+        }
+    }
+
+    private static void writeNotification(StringBuilder sb) {
+        List<NotificationLane.LaneStats> stats = NotificationUtil.stats();
+
+        type(sb, "ani_rss_notification_queue", "通知队列中的数量", "gauge");
+        for (NotificationLane.LaneStats it : stats) {
+            sample(sb, "ani_rss_notification_queue", "channel", it.getNotificationType().name(), it.getQueued());
+        }
+        sample(sb, "ani_rss_notification_queue", "channel", "DOWNLOAD_END", NotificationUtil.getDownloadEndPending());
+
+        type(sb, "ani_rss_notification_sent_total", "通知发送成功", "counter");
+        for (NotificationLane.LaneStats it : stats) {
+            sample(sb, "ani_rss_notification_sent_total", "channel", it.getNotificationType().name(), it.getSent());
+        }
+        type(sb, "ani_rss_notification_failed_total", "通知发送失败", "counter");
+        for (NotificationLane.LaneStats it : stats) {
+            sample(sb, "ani_rss_notification_failed_total", "channel", it.getNotificationType().name(), it.getFailed());
+        }
+        type(sb, "ani_rss_notification_dropped_total", "队列满时丢弃的通知", "counter");
+        for (NotificationLane.LaneStats it : stats) {
+            sample(sb, "ani_rss_notification_dropped_total", "channel", it.getNotificationType().name(), it.getDropped());
+        }
+    }
+
+    private static void writeRclone(StringBuilder sb) {
+        type(sb, "ani_rss_rclone_tasks", "Rclone 同步任务数", "gauge");
+        for (Map.Entry<String, Long> entry : RcloneSyncTaskService.countByStatus().entrySet()) {
+            sample(sb, "ani_rss_rclone_tasks", "status", entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void writeJvm(StringBuilder sb) {
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memoryMXBean.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memoryMXBean.getNonHeapMemoryUsage();
+
+        type(sb, "jvm_memory_used_bytes", "已使用内存", "gauge");
+        sample(sb, "jvm_memory_used_bytes", "area", "heap", heap.getUsed());
+        sample(sb, "jvm_memory_used_bytes", "area", "nonheap", nonHeap.getUsed());
+        type(sb, "jvm_memory_committed_bytes", "已申请内存", "gauge");
+        sample(sb, "jvm_memory_committed_bytes", "area", "heap", heap.getCommitted());
+        sample(sb, "jvm_memory_committed_bytes", "area", "nonheap", nonHeap.getCommitted());
+        type(sb, "jvm_memory_max_bytes", "最大内存", "gauge");
+        sample(sb, "jvm_memory_max_bytes", "area", "heap", heap.getMax());
+        sample(sb, "jvm_memory_max_bytes", "area", "nonheap", nonHeap.getMax());
+
+        List<GarbageCollectorMXBean> gcList = ManagementFactory.getGarbageCollectorMXBeans();
+        type(sb, "jvm_gc_collection_total", "GC 次数", "counter");
+        for (GarbageCollectorMXBean gc : gcList) {
+            sample(sb, "jvm_gc_collection_total", "gc", gc.getName(), gc.getCollectionCount());
+        }
+        type(sb, "jvm_gc_collection_seconds_total", "GC 耗时", "counter");
+        for (GarbageCollectorMXBean gc : gcList) {
+            sample(sb, "jvm_gc_collection_seconds_total", "gc", gc.getName(), gc.getCollectionTime() / 1000.0);
+        }
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        gauge(sb, "jvm_threads", "线程数", threadMXBean.getThreadCount());
+        gauge(sb, "jvm_threads_daemon", "守护线程数", threadMXBean.getDaemonThreadCount());
+        gauge(sb, "process_uptime_seconds", "运行时间", ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
+    }
+
+    public static void type(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    public static void gauge(StringBuilder sb, String name, String help, Number value) {
+        type(sb, name, help, "gauge");
+        sample(sb, name, null, null, value);
+    }
+
+    public static void counter(StringBuilder sb, String name, String help, Number value) {
+        type(sb, name, help, "counter");
+        sample(sb, name, null, null, value);
+    }
+
+    /**
+     * 写出一个值
+     *
+     * @param labelName  标签名, 为 null 时不带标签
+     * @param labelValue 标签值
+     */
+    public static void sample(StringBuilder sb, String name, String labelName, String labelValue, Number value) {
+        sb.append(name);
+        if (Objects.nonNull(labelName)) {
+            sb.append('{').append(labelName).append("=\"").append(escape(labelValue)).append("\"}");
+        }
+        sb.append(' ').append(Objects.isNull(value) ? 0 : value).append('\n');
+    }
+
+    public static String escape(String s) {
+        if (Objects.isNull(s)) {
+            return "";
+        }
+        return s.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+}
@@ -4,8 +4,10 @@ import ani.rss.commons.CacheUtils;
 import ani.rss.commons.GsonStatic;
 import ani.rss.entity.*;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.MetadataCacheUtil;
 import cn.hutool.core.collection.ListUtil;
 import cn.hutool.core.lang.Assert;
+import cn.hutool.core.lang.Opt;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
@@ -31,6 +33,16 @@ import java.util.stream.Collectors;
 
 @Slf4j
 public class MikanUtil {
+    /**
+     * 番剧页缓存时间, 页面包含字幕组的最新资源
+     */
+    private static final long BANGUMI_TTL = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * 过期后先返回旧数据并在后台刷新的时间
+     */
+    private static final long STALE_TTL = TimeUnit.DAYS.toMillis(1);
+
     public static String getMikanHost() {
         Config config = ConfigUtil.CONFIG;
         String mikanHost = config.getMikanHost();
@@ -274,13 +286,14 @@ public class MikanUtil {
     public static MikanInfo getMikanInfo(String bangumiId) {
         URI host = URLUtil.getHost(URLUtil.url(getMikanHost()));
         String url = host + "/Home/Bangumi/" + bangumiId;
-        return HttpReq.get(url)
-                .thenFunction(res -> {
+        String body = MetadataCacheUtil.getBody("mikan:bangumi:" + url, BANGUMI_TTL, STALE_TTL, () -> HttpReq.get(url));
+        return Opt.of(body)
+                .map(it -> {
                     MikanInfo mikanInfo = new MikanInfo();
 
                     mikanInfo.setUrl(url);
 
-                    Document html = Jsoup.parse(res.body());
+                    Document html = Jsoup.parse(it);
 
                     Element cover = html.selectFirst(".content > img");
                     if (Objects.nonNull(cover)) {
@@ -357,7 +370,8 @@ public class MikanUtil {
 
                     mikanInfo.setGroups(groups);
                     return mikanInfo;
-                });
+                })
+                .get();
     }
 
     public static void getMikanInfo(Ani ani, String subgroupId) {
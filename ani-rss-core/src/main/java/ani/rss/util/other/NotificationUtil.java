@@ -6,26 +6,29 @@ import ani.rss.entity.NotificationConfig;
 import ani.rss.enums.NotificationStatusEnum;
 import ani.rss.enums.NotificationTypeEnum;
 import ani.rss.notification.*;
+import ani.rss.other.NotificationLane;
 import cn.hutool.core.thread.ExecutorBuilder;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.ReflectUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class NotificationUtil {
-    private static final ExecutorService EXECUTOR_SERVICE = ExecutorBuilder.create()
-            .setCorePoolSize(1)
-            .setMaxPoolSize(1)
-            .setWorkQueue(new LinkedBlockingQueue<>(256))
-            .build();
+    /**
+     * 每个通知渠道一个发送队列
+     */
+    private static final Map<NotificationTypeEnum, NotificationLane> LANES = new ConcurrentHashMap<>();
     private static final ExecutorService DOWNLOAD_END_EXECUTOR_SERVICE = ExecutorBuilder.create()
             .setCorePoolSize(1)
             .setMaxPoolSize(1)
@@ -33,6 +36,11 @@ public class NotificationUtil {
             .build();
     private static final AtomicInteger DOWNLOAD_END_PENDING = new AtomicInteger(0);
 
+    /**
+     * 下载完成通知使用的实例, 只在 DOWNLOAD_END_EXECUTOR_SERVICE 中使用
+     */
+    private static final Map<NotificationTypeEnum, BaseNotification> DOWNLOAD_END_NOTIFICATIONS = new HashMap<>();
+
     public final static Map<NotificationTypeEnum, Class<? extends BaseNotification>>
             NOTIFICATION_MAP =
             Map.of(
@@ -56,7 +64,7 @@ public class NotificationUtil {
      * @param text
      * @param notificationStatusEnum
      */
-    public static synchronized void send(Config config, Ani ani, String text, NotificationStatusEnum notificationStatusEnum) {
+    public static void send(Config config, Ani ani, String text, NotificationStatusEnum notificationStatusEnum) {
         Boolean isMessage = ani.getMessage();
 
         if (!isMessage) {
@@ -90,15 +98,26 @@ public class NotificationUtil {
                             .toList()
             );
 
+            // 先计数再提交, 避免任务先结束时计数短暂为负; 提交失败时撤回
             DOWNLOAD_END_PENDING.incrementAndGet();
-            DOWNLOAD_END_EXECUTOR_SERVICE.execute(() -> {
-                try {
-                    orderedConfigs.forEach(notificationConfig ->
-                            sendWithRetry(notificationConfig, ani, text, notificationStatusEnum));
-                } finally {
-                    DOWNLOAD_END_PENDING.decrementAndGet();
-                }
-            });
+            try {
+                DOWNLOAD_END_EXECUTOR_SERVICE.execute(() -> {
+                    try {
+                        orderedConfigs.forEach(notificationConfig -> {
+                            NotificationTypeEnum notificationType = notificationConfig.getNotificationType();
+                            BaseNotification baseNotification = DOWNLOAD_END_NOTIFICATIONS.computeIfAbsent(
+                                    notificationType, k -> ReflectUtil.newInstance(NOTIFICATION_MAP.get(k))
+                            );
+                            sendWithRetry(baseNotification, notificationConfig, ani, text, notificationStatusEnum);
+                        });
+                    } finally {
+                        DOWNLOAD_END_PENDING.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                DOWNLOAD_END_PENDING.decrementAndGet();
+                log.error("下载完成通知队列已满, 已丢弃 {}", text);
+            }
             return;
         }
 
@@ -121,38 +140,69 @@ public class NotificationUtil {
                 return;
             }
 
-            EXECUTOR_SERVICE.execute(() -> sendWithRetry(notificationConfig, ani, text, notificationStatusEnum));
+            LANES.computeIfAbsent(notificationType, k -> new NotificationLane(k, NOTIFICATION_MAP.get(k)))
+                    .offer(notificationConfig, ani, text, notificationStatusEnum);
         }
     }
 
-    private static void sendWithRetry(
+    /**
+     * 发送通知, 出现异常时按设置的次数重试
+     * <p>
+     * 返回 false (如未配置、脚本超时) 时不重试, 只记为失败
+     *
+     * @return 是否发送成功
+     */
+    public static Boolean sendWithRetry(
+            BaseNotification baseNotification,
             NotificationConfig notificationConfig,
             Ani ani,
             String text,
             NotificationStatusEnum notificationStatusEnum
     ) {
-        NotificationTypeEnum notificationType = notificationConfig.getNotificationType();
-        Class<? extends BaseNotification> aClass = NOTIFICATION_MAP.get(notificationType);
+        String name = baseNotification.getClass().getName();
         int retry = notificationConfig.getRetry();
 
-        BaseNotification baseNotification = ReflectUtil.newInstance(aClass);
         int currentRetry = 0;
         do {
             if (currentRetry > 0) {
-                log.warn("通知失败 正在重试 第{}次 {}", currentRetry, aClass.getName());
+                log.warn("通知失败 正在重试 第{}次 {}", currentRetry, name);
             }
             try {
-                baseNotification.send(notificationConfig, ani, text, notificationStatusEnum);
-                return;
+                Boolean ok = MetricsUtil.NOTIFICATION.labels(notificationConfig.getNotificationType().name())
+                        .time(() -> baseNotification.send(notificationConfig, ani, text, notificationStatusEnum));
+                if (Boolean.FALSE.equals(ok)) {
+                    log.warn("通知发送失败 {}", name);
+                    return false;
+                }
+                return true;
             } catch (Exception e) {
                 log.error(e.getMessage(), e);
             }
             currentRetry += 1;
             ThreadUtil.sleep(1000);
         } while (currentRetry < retry);
+        return false;
+    }
+
+    /**
+     * 各通知渠道的队列统计
+     */
+    public static List<NotificationLane.LaneStats> stats() {
+        return LANES.values()
+                .stream()
+                .map(NotificationLane::stats)
+                .sorted(Comparator.comparing(it -> it.getNotificationType().name()))
+                .toList();
     }
 
     public static boolean hasPendingDownloadEndTasks() {
         return DOWNLOAD_END_PENDING.get() > 0;
     }
+
+    /**
+     * 等待中的下载完成通知数
+     */
+    public static int getDownloadEndPending() {
+        return DOWNLOAD_END_PENDING.get();
+    }
 }
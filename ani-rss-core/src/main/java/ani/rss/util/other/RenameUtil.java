@@ -6,10 +6,8 @@ import ani.rss.entity.BgmInfo;
 import ani.rss.entity.Config;
 import ani.rss.entity.Item;
 import ani.rss.enums.StringEnum;
+import ani.rss.other.Template;
 import cn.hutool.core.lang.Opt;
-import cn.hutool.core.lang.func.Func1;
-import cn.hutool.core.lang.func.LambdaUtil;
-import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -17,12 +15,35 @@ import wushuo.tmdb.api.entity.Tmdb;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 
 @Slf4j
 public class RenameUtil {
     public static final String REG_STR = "(.*|\\[.*])(( - |Vol |[Ee][Pp]?)\\d+(\\.5)?|【\\d+(\\.5)?】|\\[\\d+(\\.5)?( ?[vV]\\d)?( ?END)?( ?完)?( ?FIN)?]|第\\d+(\\.5)?[话話集]( - END)?|^\\[TOC].* \\d+)";
 
+    private static final Pattern REG = Pattern.compile(REG_STR, Pattern.DOTALL);
+
+    private static final Pattern EPISODE_REG = Pattern.compile("\\d+(\\.5)?", Pattern.DOTALL);
+
+    private static final Pattern HASH_REG = Pattern.compile("\\[([A-Z]|\\d){8}]$");
+
+    private static final Pattern RESOLUTION_REG = Pattern.compile("(720|1080|2160)[Pp]", Pattern.DOTALL);
+
+    private static final Map<String, String> RESOLUTION_MAP = Map.of(
+            "1920x1080", "1080p",
+            "3840x2160", "2160p",
+            "1280x720", "720p"
+    );
+
+    private static final Set<String> EPISODE_TITLE_NAMES = Set.of(
+            "episodeTitle", "bgmEpisodeTitle", "bgmJpEpisodeTitle"
+    );
+
     public static Boolean rename(Ani ani, Item item) {
+        return MetricsUtil.RENAME.time(() -> doRename(ani, item));
+    }
+
+    private static Boolean doRename(Ani ani, Item item) {
         Config config = ConfigUtil.CONFIG;
 
         int offset = ani.getOffset();
@@ -49,21 +70,21 @@ public class RenameUtil {
         itemTitle = itemTitle.replace("\n", " ").trim();
         itemTitle = itemTitle.replace("\t", " ").trim();
         // 去除结尾的 8 位 Hash
-        itemTitle = itemTitle.replaceAll("\\[([A-Z]|\\d){8}]$", "").trim();
+        itemTitle = HASH_REG.matcher(itemTitle).replaceAll("").trim();
 
         String e;
         // 是否使用自定义剧规则
         if (customEpisode) {
             e = ReUtil.get(customEpisodeStr, itemTitle, customEpisodeGroupIndex);
         } else {
-            e = ReUtil.get(REG_STR, itemTitle, 2);
+            e = ReUtil.get(REG, itemTitle, 2);
         }
 
         if (StrUtil.isBlank(e)) {
             return false;
         }
 
-        String episodeStr = ReUtil.get("\\d+(\\.5)?", e, 0);
+        String episodeStr = ReUtil.get(EPISODE_REG, e, 0);
         if (StrUtil.isBlank(episodeStr)) {
             return false;
         }
@@ -97,28 +118,25 @@ public class RenameUtil {
                 .filter(StrUtil::isNotBlank)
                 .orElse("");
 
-        renameTemplate = renameTemplate.replace("${seasonFormat}", seasonFormat);
-        renameTemplate = renameTemplate.replace("${episodeFormat}", episodeFormat);
-        renameTemplate = renameTemplate.replace("${season}", String.valueOf(season));
-        renameTemplate = renameTemplate.replace("${episode}", episodeStr);
-        renameTemplate = renameTemplate.replace("${subgroup}", subgroup);
-        renameTemplate = renameTemplate.replace("${itemTitle}", itemTitle);
-        renameTemplate = renameTemplate.replace("${resolution}", resolution);
-        renameTemplate = renameTemplate.replace("${tmdbid}", tmdbId);
-        renameTemplate = renameTemplate.replace("${title}", title);
-
-        renameTemplate = replaceEpisodeTitle(renameTemplate, episode, ani);
-
-        if (renameTemplate.contains("${jpTitle}")) {
-            String jpTitle = getJpTitle(ani);
-            renameTemplate = renameTemplate.replace("${jpTitle}", jpTitle);
-        }
-
-        List<Func1<Ani, Object>> list = List.of(
-                Ani::getThemoviedbName
-        );
-
-        renameTemplate = replaceField(renameTemplate, ani, list);
+        String finalTitle = title;
+        String finalSubgroup = subgroup;
+        String finalItemTitle = itemTitle;
+        String finalEpisodeFormat = episodeFormat;
+        String finalEpisodeStr = episodeStr;
+        renameTemplate = Template.render(renameTemplate, name -> switch (name) {
+            case "seasonFormat" -> seasonFormat;
+            case "episodeFormat" -> finalEpisodeFormat;
+            case "season" -> String.valueOf(season);
+            case "episode" -> finalEpisodeStr;
+            case "subgroup" -> finalSubgroup;
+            case "itemTitle" -> finalItemTitle;
+            case "resolution" -> resolution;
+            case "tmdbid" -> tmdbId;
+            case "title" -> finalTitle;
+            case "jpTitle" -> getJpTitle(ani);
+            case "themoviedbName" -> ani.getThemoviedbName();
+            default -> getEpisodeTitle(name, episode, ani);
+        });
 
         renameTemplate = renameDel(renameTemplate);
 
@@ -158,65 +176,36 @@ public class RenameUtil {
         return renameTemplate;
     }
 
-    public static <T> String replaceField(String template, T object, List<Func1<T, Object>> list) {
-        if (Objects.isNull(object)) {
-            return template;
-        }
-        for (Func1<T, Object> func1 : list) {
-            try {
-                String fieldName = LambdaUtil.getFieldName(func1);
-                String s = StrFormatter.format("${{}}", fieldName);
-                String v = func1.callWithRuntimeException(object).toString();
-                template = template.replace(s, v);
-            } catch (Exception ignored) {
-            }
-        }
-        return template;
-    }
-
     /**
-     * 替换集标题
+     * 获取集标题
      *
-     * @param template 模板
-     * @param episode  集数
-     * @param ani      订阅
-     * @return 替换结果
+     * @param name    episodeTitle / bgmEpisodeTitle / bgmJpEpisodeTitle
+     * @param episode 集数
+     * @param ani     订阅
+     * @return 集标题, 其他占位符返回 null
      */
-    public static String replaceEpisodeTitle(String template, Double episode, Ani ani) {
-        boolean is5 = ItemsUtil.is5(episode);
-
-        Map<Integer, String> episodeTitleMap = new HashMap<>();
-        Map<Integer, Function<Boolean, String>> bgmEpisodeTitleMap = new HashMap<>();
-
-        if (template.contains("${episodeTitle}")) {
-            episodeTitleMap = TmdbUtils.getEpisodeTitleMap(ani);
-        }
-
-        if (template.contains("${bgmEpisodeTitle}") || template.contains("${bgmJpEpisodeTitle}")) {
-            bgmEpisodeTitleMap = BgmUtil.getEpisodeTitleMap(ani);
+    public static String getEpisodeTitle(String name, Double episode, Ani ani) {
+        if (!EPISODE_TITLE_NAMES.contains(name)) {
+            return null;
         }
 
         String defaultEpisodeTitle = "第" + NumberFormatUtils.format(episode, 1, 0) + "集";
 
-        String episodeTitle = is5 ? defaultEpisodeTitle : episodeTitleMap
-                .getOrDefault(episode.intValue(), defaultEpisodeTitle);
+        if (ItemsUtil.is5(episode)) {
+            return defaultEpisodeTitle;
+        }
 
-        String bgmEpisodeTitle = is5 ? defaultEpisodeTitle : bgmEpisodeTitleMap
-                .getOrDefault(episode.intValue(), jp -> defaultEpisodeTitle)
-                .apply(false);
+        if ("episodeTitle".equals(name)) {
+            return TmdbUtils.getEpisodeTitleMap(ani)
+                    .getOrDefault(episode.intValue(), defaultEpisodeTitle);
+        }
 
-        String bgmJpEpisodeTitle = is5 ? defaultEpisodeTitle : bgmEpisodeTitleMap
+        Map<Integer, Function<Boolean, String>> bgmEpisodeTitleMap = BgmUtil.getEpisodeTitleMap(ani);
+        return bgmEpisodeTitleMap
                 .getOrDefault(episode.intValue(), jp -> defaultEpisodeTitle)
-                .apply(true);
-
-        template = template.replace("${episodeTitle}", episodeTitle);
-        template = template.replace("${bgmEpisodeTitle}", bgmEpisodeTitle);
-        template = template.replace("${bgmJpEpisodeTitle}", bgmJpEpisodeTitle);
-
-        return template;
+                .apply("bgmJpEpisodeTitle".equals(name));
     }
 
-
     /**
      * 获取bgm日语标题
      *
@@ -242,21 +231,15 @@ public class RenameUtil {
      * @return 分辨率
      */
     private static String getResolution(String itemTitle) {
-        Map<String, String> stringStringMap = Map.of(
-                "1920x1080", "1080p",
-                "3840x2160", "2160p",
-                "1280x720", "720p"
-        );
-        for (String s : stringStringMap.keySet()) {
-            itemTitle = itemTitle.replace(s, stringStringMap.get(s));
+        for (Map.Entry<String, String> entry : RESOLUTION_MAP.entrySet()) {
+            itemTitle = itemTitle.replace(entry.getKey(), entry.getValue());
         }
 
-        String resolutionReg = "(720|1080|2160)[Pp]";
-        String resolution = "none";
-        if (ReUtil.contains(resolutionReg, itemTitle)) {
-            resolution = ReUtil.get(resolutionReg, itemTitle, 0).toLowerCase();
+        String resolution = ReUtil.get(RESOLUTION_REG, itemTitle, 0);
+        if (StrUtil.isBlank(resolution)) {
+            return "none";
         }
-        return resolution;
+        return resolution.toLowerCase();
     }
 
     public static String getName(String s) {
@@ -2,12 +2,15 @@ package ani.rss.util.other;
 
 import ani.rss.commons.CacheUtils;
 import ani.rss.commons.ExceptionUtils;
+import ani.rss.commons.GsonStatic;
 import ani.rss.entity.Ani;
 import ani.rss.entity.Config;
 import ani.rss.entity.CustomTmdbConfig;
+import ani.rss.util.basic.MetadataCacheUtil;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.StrUtil;
+import com.google.gson.JsonObject;
 import lombok.extern.slf4j.Slf4j;
 import wushuo.tmdb.api.TmdbUtil;
 import wushuo.tmdb.api.entity.*;
@@ -24,6 +27,16 @@ public class TmdbUtils {
     public final static TmdbConfig config = new CustomTmdbConfig();
     public final static TmdbUtil TMDB_UTIL = new TmdbUtil(config);
 
+    /**
+     * 季信息缓存时间
+     */
+    private static final long SEASON_TTL = TimeUnit.HOURS.toMillis(6);
+
+    /**
+     * 过期后先返回旧数据并在后台刷新的时间
+     */
+    private static final long STALE_TTL = TimeUnit.DAYS.toMillis(7);
+
     /**
      * 获取番剧在tmdb的名称
      *
@@ -194,7 +207,15 @@ public class TmdbUtils {
      * @return
      */
     public static Optional<TmdbSeason> getTmdbSeason(Tmdb tmdb, Integer season) {
-        return TMDB_UTIL.getTmdbSeason(tmdb, season);
+        String key = StrFormatter.format("tmdb:season:{}:{}:{}:{}",
+                tmdb.getId(), tmdb.getTmdbGroupId(), season, config.getTmdbLanguage());
+        String json = MetadataCacheUtil.getValue(key, SEASON_TTL, STALE_TTL, () ->
+                TMDB_UTIL.getTmdbSeason(tmdb, season)
+                        .map(GsonStatic::toJson)
+                        .orElse(null)
+        );
+        return Optional.ofNullable(json)
+                .map(s -> GsonStatic.fromJson(s, TmdbSeason.class));
     }
 
     /**
@@ -249,7 +270,23 @@ public class TmdbUtils {
      * @return
      */
     public static Map<Integer, String> getEpisodeTitleMap(Tmdb tmdb, Integer season) {
-        return TMDB_UTIL.getEpisodeTitleMap(tmdb, season);
+        String key = StrFormatter.format("tmdb:episodeTitle:{}:{}:{}:{}",
+                tmdb.getId(), tmdb.getTmdbGroupId(), season, config.getTmdbLanguage());
+        String json = MetadataCacheUtil.getValue(key, SEASON_TTL, STALE_TTL, () -> {
+            Map<Integer, String> map = TMDB_UTIL.getEpisodeTitleMap(tmdb, season);
+            // 空结果不缓存
+            return map.isEmpty() ? null : GsonStatic.toJson(map);
+        });
+
+        Map<Integer, String> episodeTitleMap = new HashMap<>();
+        if (StrUtil.isBlank(json)) {
+            return episodeTitleMap;
+        }
+        JsonObject jsonObject = GsonStatic.fromJson(json, JsonObject.class);
+        for (String k : jsonObject.keySet()) {
+            episodeTitleMap.put(Integer.parseInt(k), jsonObject.get(k).getAsString());
+        }
+        return episodeTitleMap;
     }
 
     /**
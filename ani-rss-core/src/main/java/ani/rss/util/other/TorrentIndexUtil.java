@@ -0,0 +1,133 @@
+package ani.rss.util.other;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 种子记录索引
+ * <p>
+ * 在内存中保存 torrents 目录下全部种子记录的 hash, 不在索引中的种子无需访问磁盘即可判断不存在。
+ * 索引持久化到 torrents.index, 删除该文件会在下次启动时重新扫描 torrents 目录
+ */
+@Slf4j
+public class TorrentIndexUtil {
+    private static final Set<String> HASH_SET = ConcurrentHashMap.newKeySet();
+
+    private static volatile boolean loaded = false;
+
+    /**
+     * 种子记录可能存在
+     *
+     * @param hash hash
+     * @return false 时一定不存在
+     */
+    public static Boolean mayExist(String hash) {
+        if (StrUtil.isBlank(hash)) {
+            return true;
+        }
+        load();
+        return HASH_SET.contains(hash.trim().toLowerCase());
+    }
+
+    /**
+     * 记录已保存的种子
+     *
+     * @param torrent 种子记录
+     */
+    public static void add(File torrent) {
+        String hash = FileUtil.mainName(torrent).trim().toLowerCase();
+        if (StrUtil.isBlank(hash)) {
+            return;
+        }
+        load();
+        if (!HASH_SET.add(hash)) {
+            return;
+        }
+        synchronized (HASH_SET) {
+            try {
+                FileUtil.appendUtf8String(hash + "\n", getIndexFile());
+            } catch (Exception e) {
+                log.error("保存种子索引失败 {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 加载索引, 索引文件不存在或 torrents 下任一目录在其之后发生变化时重新扫描
+     */
+    private static void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (HASH_SET) {
+            if (loaded) {
+                return;
+            }
+            File torrentsDir = new File(ConfigUtil.getConfigDir() + "/torrents");
+            File indexFile = getIndexFile();
+            if (indexFile.exists() && !isModifiedAfter(torrentsDir, indexFile.lastModified())) {
+                for (String line : FileUtil.readUtf8Lines(indexFile)) {
+                    if (StrUtil.isNotBlank(line)) {
+                        HASH_SET.add(line.trim());
+                    }
+                }
+                log.debug("加载种子索引 共{}项", HASH_SET.size());
+                loaded = true;
+                return;
+            }
+
+            if (torrentsDir.exists()) {
+                List<File> files = FileUtil.loopFiles(torrentsDir, file -> {
+                    String extName = FileUtil.extName(file);
+                    return "torrent".equals(extName) || "txt".equals(extName);
+                });
+                for (File file : files) {
+                    HASH_SET.add(FileUtil.mainName(file).trim().toLowerCase());
+                }
+            }
+            try {
+                FileUtil.writeUtf8Lines(HASH_SET, indexFile);
+            } catch (Exception e) {
+                log.error("保存种子索引失败 {}", e.getMessage());
+            }
+            log.info("重建种子索引 共{}项", HASH_SET.size());
+            loaded = true;
+        }
+    }
+
+    /**
+     * 目录或其子目录是否在指定时间之后发生变化
+     * <p>
+     * 种子记录保存在 字母/标题/季 这样的子目录中, 新增文件只会改变所在目录的修改时间
+     *
+     * @param dir  目录
+     * @param time 时间
+     * @return 是否变化
+     */
+    private static boolean isModifiedAfter(File dir, long time) {
+        if (dir.lastModified() > time) {
+            return true;
+        }
+        File[] dirs = dir.listFiles(File::isDirectory);
+        if (Objects.isNull(dirs)) {
+            return false;
+        }
+        for (File file : dirs) {
+            if (isModifiedAfter(file, time)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static File getIndexFile() {
+        return new File(ConfigUtil.getConfigDir() + "/torrents.index");
+    }
+}
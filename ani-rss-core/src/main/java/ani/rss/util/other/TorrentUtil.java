@@ -22,8 +22,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.eclipse.bittorrent.TorrentFile;
 
 import java.io.File;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 管理下载器的调用与种子存取
@@ -32,14 +32,71 @@ import java.util.Objects;
 public class TorrentUtil {
     public static BaseDownload DOWNLOAD;
 
+    /**
+     * 任务列表缓存时间
+     */
+    private static final long TORRENTS_INFOS_TTL = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * 下载器发生修改后, 等待其生效的时间
+     */
+    private static final long CHANGE_DELAY = 1000;
+
+    private static final Object SNAPSHOT_LOCK = new Object();
+
+    private static volatile TorrentsSnapshot snapshot = null;
+
+    private static volatile long lastChangeTime = 0;
+
     /**
      * 获取任务列表
      *
      * @return
      */
-    public static synchronized List<TorrentsInfo> getTorrentsInfos() {
-        ThreadUtil.sleep(1000);
-        return DOWNLOAD.getTorrentsInfos();
+    public static List<TorrentsInfo> getTorrentsInfos() {
+        return getTorrentsInfos(false);
+    }
+
+    /**
+     * 获取任务列表
+     * <p>
+     * 列表在 {@link #TORRENTS_INFOS_TTL} 内共享, 下载器发生添加、删除、重命名等修改后失效
+     *
+     * @param refresh 忽略缓存重新获取
+     * @return 任务列表, 可修改
+     */
+    public static List<TorrentsInfo> getTorrentsInfos(Boolean refresh) {
+        return new ArrayList<>(getSnapshot(refresh).torrentsInfos);
+    }
+
+    /**
+     * 下载器发生修改, 使任务列表失效
+     */
+    public static void invalidateTorrentsInfos() {
+        lastChangeTime = System.currentTimeMillis();
+        snapshot = null;
+    }
+
+    private static TorrentsSnapshot getSnapshot(Boolean refresh) {
+        TorrentsSnapshot current = snapshot;
+        if (!refresh && Objects.nonNull(current) && current.isValid()) {
+            return current;
+        }
+        synchronized (SNAPSHOT_LOCK) {
+            current = snapshot;
+            // 等待期间其他线程已经获取
+            if (Objects.nonNull(current) && current.isValid() && (!refresh || current.time > System.currentTimeMillis() - 1000)) {
+                return current;
+            }
+            // 下载器修改后等待其生效
+            long wait = lastChangeTime + CHANGE_DELAY - System.currentTimeMillis();
+            if (wait > 0) {
+                ThreadUtil.sleep(wait);
+            }
+            current = new TorrentsSnapshot(MetricsUtil.DOWNLOADER.labels("getTorrentsInfos").time(DOWNLOAD::getTorrentsInfos));
+            snapshot = current;
+            return current;
+        }
     }
 
     /**
@@ -106,12 +163,14 @@ public class TorrentUtil {
         log.info("下载种子 {}", reName);
         File saveTorrentFile = getTorrent(ani, item);
         if (saveTorrentFile.exists()) {
+            TorrentIndexUtil.add(saveTorrentFile);
             return saveTorrentFile;
         }
 
         try {
             if (ReUtil.contains(StringEnum.MAGNET_REG, torrent)) {
                 FileUtil.writeUtf8String(torrent, saveTorrentFile);
+                TorrentIndexUtil.add(saveTorrentFile);
                 log.info("种子下载完成 {}", reName);
                 return saveTorrentFile;
             }
@@ -122,11 +181,13 @@ public class TorrentUtil {
                         if (status == 404) {
                             // 如果为 404 则写入空文件 已在 getMagnet 处理过
                             FileUtil.writeUtf8String("", saveTorrentFile);
+                            TorrentIndexUtil.add(saveTorrentFile);
                             log.info("种子下载完成 {}", reName);
                             return saveTorrentFile;
                         }
                         HttpReq.assertStatus(res);
                         FileUtil.writeFromStream(res.bodyStream(), saveTorrentFile, true);
+                        TorrentIndexUtil.add(saveTorrentFile);
                         log.info("种子下载完成 {}", reName);
                         return saveTorrentFile;
                     });
@@ -154,7 +215,7 @@ public class TorrentUtil {
             return false;
         }
         try {
-            return DOWNLOAD.login(ConfigUtil.CONFIG);
+            return MetricsUtil.DOWNLOADER.labels("login").time(() -> DOWNLOAD.login(ConfigUtil.CONFIG));
         } catch (Exception e) {
             return false;
         }
@@ -219,7 +280,8 @@ public class TorrentUtil {
             log.info("删除已完成任务 {}", name);
         }
         ThreadUtil.sleep(500);
-        Boolean b = DOWNLOAD.delete(torrentsInfo, deleteFiles);
+        Boolean b = MetricsUtil.DOWNLOADER.labels("delete").time(() -> DOWNLOAD.delete(torrentsInfo, deleteFiles));
+        invalidateTorrentsInfos();
         if (!b) {
             log.error("删除任务失败 {}", name);
             return false;
@@ -261,7 +323,8 @@ public class TorrentUtil {
         }
 
         ThreadUtil.sleep(1000);
-        Boolean renamed = DOWNLOAD.rename(torrentsInfo);
+        Boolean renamed = MetricsUtil.DOWNLOADER.labels("rename").time(() -> DOWNLOAD.rename(torrentsInfo));
+        invalidateTorrentsInfos();
         if (renamed) {
             addTags(torrentsInfo, TorrentsTags.RENAME.getValue());
         }
@@ -282,10 +345,11 @@ public class TorrentUtil {
         log.debug("添加标签 {} {}", name, tags);
         boolean b = false;
         try {
-            b = DOWNLOAD.addTags(torrentsInfo, tags);
+            b = MetricsUtil.DOWNLOADER.labels("addTags").time(() -> DOWNLOAD.addTags(torrentsInfo, tags));
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
+        invalidateTorrentsInfos();
         return b;
     }
 
@@ -302,10 +366,11 @@ public class TorrentUtil {
         }
         try {
             log.info("修改保存位置 {} ==> {}", torrentsInfo.getName(), path);
-            DOWNLOAD.setSavePath(torrentsInfo, path);
+            MetricsUtil.DOWNLOADER.labels("setSavePath").time(() -> DOWNLOAD.setSavePath(torrentsInfo, path));
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
+        invalidateTorrentsInfos();
     }
 
     public static synchronized void load() {
@@ -319,6 +384,7 @@ public class TorrentUtil {
         }
 
         DOWNLOAD = ReflectUtil.newInstance("ani.rss.download." + download);
+        invalidateTorrentsInfos();
         log.info("下载工具 {}", download);
     }
 
@@ -347,4 +413,17 @@ public class TorrentUtil {
         return StrFormatter.format("magnet:?xt=urn:btih:{}", hexHash);
     }
 
+
+    private static class TorrentsSnapshot {
+        private final List<TorrentsInfo> torrentsInfos;
+        private final long time = System.currentTimeMillis();
+
+        private TorrentsSnapshot(List<TorrentsInfo> torrentsInfos) {
+            this.torrentsInfos = Collections.unmodifiableList(new ArrayList<>(torrentsInfos));
+        }
+
+        private boolean isValid() {
+            return System.currentTimeMillis() - time < TORRENTS_INFOS_TTL;
+        }
+    }
 }
@@ -0,0 +1,88 @@
+import ani.rss.entity.Ani;
+import ani.rss.util.other.AniJournalUtil;
+import ani.rss.util.other.AniUtil;
+import ani.rss.util.other.ConfigUtil;
+import cn.hutool.core.io.FileUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestAniJournalUtil {
+    @BeforeEach
+    public void clear() {
+        FileUtil.del(AniUtil.getAniFile());
+        FileUtil.del(AniJournalUtil.getJournalFile());
+        FileUtil.mkdir(ConfigUtil.getConfigDir());
+        AniUtil.ANI_LIST.clear();
+    }
+
+    @Test
+    public void replay() {
+        AniUtil.ANI_LIST.addAll(List.of(ani("a"), ani("b"), ani("c")));
+        AniJournalUtil.compact(AniUtil.ANI_LIST);
+        assertFalse(AniJournalUtil.getJournalFile().exists());
+
+        // 修改、删除、新增并调整顺序
+        AniUtil.ANI_LIST.get(1).setTitle("b2");
+        AniUtil.ANI_LIST.remove(2);
+        AniUtil.ANI_LIST.add(0, ani("d"));
+        AniJournalUtil.flush();
+
+        File journalFile = AniJournalUtil.getJournalFile();
+        assertTrue(journalFile.exists());
+        // del c, put b, put d, order
+        assertEquals(4, FileUtil.readUtf8Lines(journalFile).size());
+
+        List<Ani> anis = load();
+        assertEquals(List.of("d", "a", "b"), anis.stream().map(Ani::getId).toList());
+        assertEquals("b2", anis.get(2).getTitle());
+
+        // 没有变化时不写入
+        AniJournalUtil.flush();
+        assertEquals(4, FileUtil.readUtf8Lines(journalFile).size());
+    }
+
+    @Test
+    public void compact() {
+        AniUtil.ANI_LIST.addAll(List.of(ani("a"), ani("b")));
+        AniJournalUtil.compact(AniUtil.ANI_LIST);
+        AniUtil.ANI_LIST.get(0).setTitle("a2");
+        AniJournalUtil.flush();
+        assertTrue(AniJournalUtil.getJournalFile().exists());
+
+        AniJournalUtil.compact(AniUtil.ANI_LIST);
+        assertFalse(AniJournalUtil.getJournalFile().exists());
+
+        List<Ani> anis = load();
+        assertEquals(List.of("a", "b"), anis.stream().map(Ani::getId).toList());
+        assertEquals("a2", anis.get(0).getTitle());
+    }
+
+    @Test
+    public void truncated() {
+        AniUtil.ANI_LIST.add(ani("a"));
+        AniJournalUtil.compact(AniUtil.ANI_LIST);
+        AniUtil.ANI_LIST.add(ani("b"));
+        AniJournalUtil.flush();
+
+        // 写入中断的最后一行被忽略
+        FileUtil.appendUtf8String("{\"op\":\"put\",\"ani\":{\"id\":\"c\"", AniJournalUtil.getJournalFile());
+
+        List<Ani> anis = load();
+        assertEquals(List.of("a", "b"), anis.stream().map(Ani::getId).toList());
+    }
+
+    private static List<Ani> load() {
+        return AniJournalUtil.load(FileUtil.readUtf8String(AniUtil.getAniFile()));
+    }
+
+    private static Ani ani(String id) {
+        return new Ani()
+                .setId(id)
+                .setTitle(id);
+    }
+}
@@ -0,0 +1,53 @@
+import ani.rss.other.ProxyRules;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestProxyRules {
+    @Test
+    public void suffix() {
+        ProxyRules rules = ProxyRules.of("""
+                bgm.tv
+                *.themoviedb.org
+                .mikanani.me
+                """);
+        // 自身与子域名
+        assertTrue(rules.test("bgm.tv"));
+        assertTrue(rules.test("api.bgm.tv"));
+        assertTrue(rules.test("A.API.BGM.TV"));
+        assertTrue(rules.test("themoviedb.org"));
+        assertTrue(rules.test("api.themoviedb.org"));
+        assertTrue(rules.test("mikanani.me"));
+
+        // 按 label 匹配, 不是字符串后缀
+        assertFalse(rules.test("notbgm.tv"));
+        assertFalse(rules.test("tv"));
+        assertFalse(rules.test("bgm.tv.example.com"));
+        assertFalse(rules.test(""));
+        assertFalse(rules.test(null));
+    }
+
+    @Test
+    public void cidr() {
+        ProxyRules rules = ProxyRules.of("""
+                192.168.0.0/16
+                10.1.2.3/32
+                """);
+        assertTrue(rules.test("192.168.1.1"));
+        assertTrue(rules.test("192.168.255.255"));
+        assertTrue(rules.test("10.1.2.3"));
+        assertFalse(rules.test("192.169.0.1"));
+        assertFalse(rules.test("10.1.2.4"));
+        // 只对 IPv4 生效
+        assertFalse(rules.test("192.168.example.com"));
+
+        assertTrue(ProxyRules.of("0.0.0.0/0").test("8.8.8.8"));
+    }
+
+    @Test
+    public void reuse() {
+        ProxyRules rules = ProxyRules.of("bgm.tv");
+        assertSame(rules, ProxyRules.of("bgm.tv"));
+        assertFalse(ProxyRules.of(null).test("bgm.tv"));
+    }
+}
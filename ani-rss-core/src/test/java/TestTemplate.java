@@ -0,0 +1,56 @@
+import ani.rss.other.Template;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestTemplate {
+    @Test
+    public void render() {
+        Map<String, String> map = Map.of(
+                "title", "葬送的芙莉莲",
+                "season", "01",
+                "episode", "05"
+        );
+        String s = Template.render("${title} S${season}E${episode}", map::get);
+        assertEquals("葬送的芙莉莲 S01E05", s);
+    }
+
+    @Test
+    public void unknown() {
+        // 取值为 null 时保留原占位符
+        String s = Template.render("${title} - ${unknown}", name -> name.equals("title") ? "a" : null);
+        assertEquals("a - ${unknown}", s);
+    }
+
+    @Test
+    public void invalid() {
+        // 不是合法名称的 ${...} 原样输出, 不会吞掉之后的占位符
+        assertEquals("${a b} x ${} $x", Template.render("${a b} ${name} ${} $x", name -> "x"));
+        assertEquals("x ${name", Template.render("${name} ${name", name -> "x"));
+        assertEquals("", Template.render(null, name -> "x"));
+        assertEquals("plain", Template.render("plain", name -> "x"));
+    }
+
+    @Test
+    public void lazy() {
+        // 只求值模板中出现的占位符
+        List<String> names = new ArrayList<>();
+        Template.render("${a}${b}${a}", name -> {
+            names.add(name);
+            return name;
+        });
+        assertEquals(List.of("a", "b", "a"), names);
+    }
+
+    @Test
+    public void contains() {
+        Template template = Template.of("${title} ${episode}");
+        assertTrue(template.contains("episode"));
+        assertFalse(template.contains("season"));
+        assertSame(template, Template.of("${title} ${episode}"));
+    }
+}
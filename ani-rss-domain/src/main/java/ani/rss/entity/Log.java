@@ -12,6 +12,11 @@ import java.io.Serializable;
 @Accessors(chain = true)
 public class Log implements Serializable {
 
+    /**
+     * 序号
+     */
+    private Long seq;
+
     /**
      * 日志信息
      */
@@ -10,10 +10,28 @@ import java.util.List;
 @Accessors(chain = true)
 public class RssTaskStatus implements Serializable {
     private Boolean running;
-    private String currentTask;
+    /**
+     * 正在拉取或处理中的任务
+     */
+    private List<String> runningTasks;
     private Integer queueSize;
     private List<String> queue;
     private Long startTime;
     private Long lastFinishTime;
+
+    /**
+     * RSS 未发生变化而跳过的次数
+     */
+    private Long feedHit;
+
+    /**
+     * RSS 需要完整处理的次数
+     */
+    private Long feedMiss;
+
+    /**
+     * RSS 响应 304 的次数
+     */
+    private Long feedNotModified;
 }
 
@@ -24,6 +24,9 @@ export let configData = {
     "rename": true,
     "rss": true,
     "rssTimeout": 20,
+    "rssThreads": 4,
+    "rssHostThreads": 2,
+    "rssVirtualThread": false,
     "fileExist": false,
     "awaitStalledUP": true,
     "delete": false,
@@ -37,6 +40,8 @@ export let configData = {
     "coexist": false,
     "logsMax": 2048,
     "debug": false,
+    "serverThreads": 16,
+    "serverBulkThreads": 4,
     "proxy": false,
     "proxyList": "",
     "proxyHost": "",
@@ -123,6 +128,9 @@ export let configData = {
     "completed": false,
     "completedPathTemplate": "/Users/wushuo/Movies/已完结番剧/${letter}/${title}/Season ${season}",
     "notificationConfigList": [],
+    "notificationQueueSize": 64,
+    "notificationDigest": false,
+    "notificationDigestSeconds": 30,
     "priorityKeywordsEnable": false,
     "priorityKeywords": [],
     "procrastinatingMasterOnly": true,
@@ -0,0 +1,55 @@
+import {authorization} from "@/js/global.js";
+
+/**
+ * 服务端推送, 所有订阅共用一个连接
+ */
+const eventNames = ['status', 'logs', 'torrents', 'torrents-delta']
+const listeners = {}
+let source = undefined
+let topics = ''
+
+let connect = () => {
+    let list = Object.keys(listeners)
+        .filter(it => listeners[it].length)
+        .map(it => it.replace('-delta', ''))
+    let newTopics = [...new Set(list)].sort().join(',')
+    if (newTopics === topics) {
+        return
+    }
+    source?.close()
+    source = undefined
+    topics = newTopics
+    if (!topics) {
+        return
+    }
+    source = new EventSource(`api/events?topics=${topics}&s=${authorization.value}`)
+    for (let name of eventNames) {
+        source.addEventListener(name, e => {
+            let data = JSON.parse(e.data)
+            for (let fun of listeners[name] || []) {
+                fun(data)
+            }
+        })
+    }
+}
+
+/**
+ * 订阅
+ *
+ * @param handlers 事件名 -> 处理函数
+ * @returns {function} 取消订阅
+ */
+let subscribe = (handlers) => {
+    for (let name in handlers) {
+        listeners[name] = [...(listeners[name] || []), handlers[name]]
+    }
+    connect()
+    return () => {
+        for (let name in handlers) {
+            listeners[name] = (listeners[name] || []).filter(it => it !== handlers[name])
+        }
+        connect()
+    }
+}
+
+export default {subscribe}
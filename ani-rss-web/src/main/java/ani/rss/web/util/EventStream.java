@@ -0,0 +1,420 @@
+package ani.rss.web.util;
+
+import ani.rss.commons.GsonStatic;
+import ani.rss.entity.Log;
+import ani.rss.entity.Result;
+import ani.rss.entity.TorrentsInfo;
+import ani.rss.task.RssTask;
+import ani.rss.util.basic.LogUtil;
+import ani.rss.util.other.TorrentUtil;
+import ani.rss.web.action.BaseAction;
+import ani.rss.web.annotation.Auth;
+import ani.rss.web.auth.enums.AuthType;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.Header;
+import cn.hutool.http.server.HttpServerRequest;
+import cn.hutool.http.server.HttpServerResponse;
+import com.sun.net.httpserver.HttpExchange;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 服务端推送 (Server-Sent Events)
+ * <p>
+ * 任务状态、日志与下载器任务由后台线程统一获取, 变化时推送给所有连接,
+ * 打开多少个页面都只请求一次下载器。连接不占用 http 处理线程
+ * <p>
+ * 每个连接有自己的发送队列与写入线程, 推送只是放入队列, 不会因某个连接卡住而影响其他连接;
+ * 队列满 (长时间未读取) 时断开该连接
+ * <p>
+ * 事件: status 任务状态; logs 新日志; torrents 全部下载任务; torrents-delta 变化的下载任务
+ */
+@Slf4j
+public class EventStream {
+    @Auth(type = {
+            AuthType.IP_WHITE_LIST,
+            AuthType.HEADER,
+            AuthType.FORM,
+            AuthType.API_KEY
+    })
+    public static final String PATH = "/api/events";
+
+    public static final String STATUS = "status";
+    public static final String LOGS = "logs";
+    public static final String TORRENTS = "torrents";
+
+    private static final Set<String> TOPICS = Set.of(STATUS, LOGS, TORRENTS);
+
+    /**
+     * 心跳间隔 (秒), 避免被代理断开
+     */
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    /**
+     * 下载器任务的刷新间隔 (秒)
+     */
+    private static final long TORRENTS_SECONDS = 3;
+
+    /**
+     * 每个连接最多排队的消息数
+     */
+    private static final int QUEUE_SIZE = 64;
+
+    private static final List<Client> CLIENTS = new CopyOnWriteArrayList<>();
+
+    /**
+     * 状态与日志的获取和推送在此线程中执行, 保证事件顺序
+     */
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            ThreadFactoryBuilder.create()
+                    .setNamePrefix("event-stream-")
+                    .setDaemon(true)
+                    .build()
+    );
+
+    /**
+     * 请求下载器, 避免下载器响应慢时拖慢状态与日志的推送
+     */
+    private static final ScheduledExecutorService TORRENTS_EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            ThreadFactoryBuilder.create()
+                    .setNamePrefix("event-stream-torrents-")
+                    .setDaemon(true)
+                    .build()
+    );
+
+    /**
+     * 各连接的写入线程
+     */
+    private static final ExecutorService WRITER = Executors.newCachedThreadPool(
+            ThreadFactoryBuilder.create()
+                    .setNamePrefix("event-stream-writer-")
+                    .setDaemon(true)
+                    .build()
+    );
+
+    /**
+     * 下载任务的快照与连接加入需要互斥, 保证新连接不会漏掉变化
+     */
+    private static final Object TORRENTS_LOCK = new Object();
+
+    private static String lastStatus = "";
+    private static long lastLogSeq = 0;
+
+    /**
+     * hash -> json, 为 null 时还未获取
+     */
+    private static Map<String, String> lastTorrents = null;
+
+    static {
+        EXECUTOR.scheduleWithFixedDelay(EventStream::tick, 1, 1, TimeUnit.SECONDS);
+        EXECUTOR.scheduleWithFixedDelay(() -> broadcast(null, ": ping\n\n"), HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        TORRENTS_EXECUTOR.scheduleWithFixedDelay(EventStream::tickTorrents, TORRENTS_SECONDS, TORRENTS_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 打开连接, 之后由推送线程写入, 不关闭 exchange
+     * <p>
+     * 参数 topics 为订阅的事件 (逗号分隔, 默认全部), since 或 Last-Event-ID 为已收到的日志序号
+     *
+     * @param request  请求
+     * @param response 响应
+     */
+    public static void open(HttpServerRequest request, HttpServerResponse response) {
+        HttpExchange httpExchange = request.getHttpExchange();
+        Auth auth = ReflectUtil.getField(EventStream.class, "PATH").getAnnotation(Auth.class);
+        if (!AuthUtil.test(request, auth)) {
+            BaseAction.staticResult(new Result<>().setCode(403).setMessage("登录状态失效"));
+            httpExchange.close();
+            return;
+        }
+
+        Set<String> topics = new HashSet<>(StrUtil.split(request.getParam("topics"), ",", true, true));
+        topics.retainAll(TOPICS);
+        if (topics.isEmpty()) {
+            topics.addAll(TOPICS);
+        }
+
+        String since = StrUtil.blankToDefault(request.getHeader("Last-Event-ID"), request.getParam("since"));
+        long logSeq = NumberUtil.isLong(since) ? Long.parseLong(since) : 0;
+
+        OutputStream out;
+        try {
+            response.setContentType("text/event-stream; charset=utf-8");
+            response.setHeader(Header.CACHE_CONTROL, "no-cache");
+            // 禁止 nginx 缓冲
+            response.setHeader("X-Accel-Buffering", "no");
+            response.send(200, 0);
+            out = response.getOut();
+        } catch (Exception e) {
+            log.debug("打开推送失败 {}", e.getMessage());
+            httpExchange.close();
+            return;
+        }
+
+        Client client = new Client(httpExchange, out, topics);
+        EXECUTOR.execute(() -> init(client, logSeq));
+    }
+
+    /**
+     * 当前连接数
+     */
+    public static int size() {
+        return CLIENTS.size();
+    }
+
+    /**
+     * 新连接先收到当前状态, 再加入推送列表
+     */
+    private static void init(Client client, long logSeq) {
+        // 先推送已有连接的变化, 新连接只接收之后的事件
+        tick();
+
+        StringBuilder sb = new StringBuilder("retry: 3000\n\n");
+        try {
+            if (client.topics.contains(STATUS)) {
+                sb.append(event(STATUS, null, toJson(RssTask.getStatus())));
+            }
+            if (client.topics.contains(LOGS)) {
+                List<Log> logs = LogUtil.getLogs(logSeq)
+                        .stream()
+                        .filter(it -> it.getSeq() <= lastLogSeq)
+                        .toList();
+                if (!logs.isEmpty()) {
+                    sb.append(event(LOGS, logs.get(logs.size() - 1).getSeq(), toJson(logs)));
+                }
+            }
+        } catch (Exception e) {
+            log.debug("推送初始化失败 {}", e.getMessage());
+        }
+
+        boolean fetchTorrents = false;
+        synchronized (TORRENTS_LOCK) {
+            if (client.topics.contains(TORRENTS)) {
+                if (Objects.isNull(lastTorrents)) {
+                    // 还未获取, 获取后会推送全部下载任务
+                    fetchTorrents = true;
+                } else {
+                    sb.append(event(TORRENTS, null, toJsonArray(lastTorrents.values())));
+                }
+            }
+            client.offer(sb.toString().getBytes(StandardCharsets.UTF_8));
+            CLIENTS.add(client);
+        }
+        client.start();
+        log.debug("推送连接 {} 当前 {} 个", client.topics, CLIENTS.size());
+
+        if (fetchTorrents) {
+            TORRENTS_EXECUTOR.execute(EventStream::tickTorrents);
+        }
+    }
+
+    private static void tick() {
+        if (CLIENTS.isEmpty()) {
+            // 无连接时从最新开始
+            lastLogSeq = LogUtil.LOG_BUFFER.getSequence();
+            return;
+        }
+        try {
+            String status = toJson(RssTask.getStatus());
+            if (!status.equals(lastStatus)) {
+                lastStatus = status;
+                broadcast(STATUS, event(STATUS, null, status));
+            }
+
+            if (LogUtil.LOG_BUFFER.getSequence() > lastLogSeq) {
+                List<Log> logs = LogUtil.getLogs(lastLogSeq);
+                if (!logs.isEmpty()) {
+                    lastLogSeq = logs.get(logs.size() - 1).getSeq();
+                    broadcast(LOGS, event(LOGS, lastLogSeq, toJson(logs)));
+                }
+            }
+        } catch (Exception e) {
+            log.debug("推送失败 {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 只推送变化的下载任务, 无订阅时不请求下载器
+     */
+    private static void tickTorrents() {
+        if (CLIENTS.stream().noneMatch(client -> client.topics.contains(TORRENTS))) {
+            synchronized (TORRENTS_LOCK) {
+                lastTorrents = null;
+            }
+            return;
+        }
+        try {
+            Map<String, String> torrents = getTorrents();
+            synchronized (TORRENTS_LOCK) {
+                Map<String, String> last = lastTorrents;
+                lastTorrents = torrents;
+                if (Objects.isNull(last)) {
+                    // 首次获取, 之前加入的连接还未收到下载任务
+                    broadcast(TORRENTS, event(TORRENTS, null, toJsonArray(torrents.values())));
+                    return;
+                }
+
+                List<String> put = new ArrayList<>();
+                for (Map.Entry<String, String> entry : torrents.entrySet()) {
+                    if (!entry.getValue().equals(last.get(entry.getKey()))) {
+                        put.add(entry.getValue());
+                    }
+                }
+                List<String> del = new ArrayList<>(last.keySet());
+                del.removeAll(torrents.keySet());
+                if (put.isEmpty() && del.isEmpty()) {
+                    return;
+                }
+                String data = StrUtil.format("{\"put\":{},\"del\":{}}", toJsonArray(put), toJson(del));
+                broadcast(TORRENTS, event(TORRENTS + "-delta", null, data));
+            }
+        } catch (Exception e) {
+            log.debug("获取下载任务失败 {}", e.getMessage());
+        }
+    }
+
+    private static Map<String, String> getTorrents() {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (TorrentsInfo torrentsInfo : TorrentUtil.getTorrentsInfos()) {
+            String key = StrUtil.blankToDefault(torrentsInfo.getHash(), torrentsInfo.getId());
+            map.put(key, toJson(torrentsInfo));
+        }
+        return map;
+    }
+
+    /**
+     * 单行 JSON, data 中不能出现换行
+     */
+    private static String toJson(Object o) {
+        return GsonStatic.toJsonTree(o).toString();
+    }
+
+    private static String toJsonArray(Collection<String> jsonList) {
+        return "[" + String.join(",", jsonList) + "]";
+    }
+
+    private static String event(String name, Long id, String data) {
+        StringBuilder sb = new StringBuilder();
+        if (Objects.nonNull(id)) {
+            sb.append("id: ").append(id).append('\n');
+        }
+        sb.append("event: ").append(name).append('\n');
+        sb.append("data: ").append(data).append("\n\n");
+        return sb.toString();
+    }
+
+    /**
+     * 推送给订阅的连接, topic 为空时推送给全部
+     * <p>
+     * 只放入各连接的发送队列, 不会阻塞
+     */
+    private static void broadcast(String topic, String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        for (Client client : CLIENTS) {
+            if (Objects.nonNull(topic) && !client.topics.contains(topic)) {
+                continue;
+            }
+            client.offer(bytes);
+        }
+    }
+
+    private static class Client {
+        /**
+         * 放入队列后写入线程结束
+         */
+        private static final byte[] CLOSE = new byte[0];
+
+        private final HttpExchange httpExchange;
+        private final OutputStream out;
+        private final Set<String> topics;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        /**
+         * 写入线程, 未在写入时为 null
+         */
+        private Thread writer;
+
+        private Client(HttpExchange httpExchange, OutputStream out, Set<String> topics) {
+            this.httpExchange = httpExchange;
+            this.out = out;
+            this.topics = topics;
+        }
+
+        private void start() {
+            WRITER.execute(this::drain);
+        }
+
+        /**
+         * 放入发送队列, 队列已满时断开
+         */
+        private void offer(byte[] bytes) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(bytes)) {
+                log.debug("推送队列已满 {}", httpExchange.getRemoteAddress());
+                close();
+            }
+        }
+
+        /**
+         * 移出推送列表, exchange 由写入线程关闭, 避免在调用线程中阻塞
+         * <p>
+         * 写入线程可能阻塞在不再读取的连接上, 中断它会关闭底层的 SocketChannel
+         */
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            CLIENTS.remove(this);
+            queue.clear();
+            queue.offer(CLOSE);
+            synchronized (this) {
+                if (Objects.nonNull(writer) && writer != Thread.currentThread()) {
+                    writer.interrupt();
+                }
+            }
+            log.debug("推送断开 当前 {} 个", CLIENTS.size());
+        }
+
+        private void drain() {
+            synchronized (this) {
+                writer = Thread.currentThread();
+            }
+            try {
+                while (true) {
+                    byte[] bytes = queue.take();
+                    // 一并写出已排队的消息后再 flush
+                    while (Objects.nonNull(bytes)) {
+                        if (bytes == CLOSE) {
+                            return;
+                        }
+                        out.write(bytes);
+                        bytes = queue.poll();
+                    }
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                log.debug("推送写入失败 {}", e.getMessage());
+            } finally {
+                close();
+                httpExchange.close();
+                synchronized (this) {
+                    writer = null;
+                }
+                // 线程归还线程池前清除中断标记
+                Thread.interrupted();
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ani.rss.web.util;
+
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * http 请求的处理线程池
+ * <p>
+ * 记录排队数量、排队时间与处理时间
+ */
+public class ServerLane implements Executor {
+    /**
+     * 是否为队列已满后转交的请求
+     */
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 队列满时转交的线程池, 为 null 时直接抛出 RejectedExecutionException
+     */
+    private final ServerLane overflow;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    /**
+     * @param name      名称
+     * @param threads   线程数
+     * @param queueSize 队列长度
+     * @param overflow  队列满时转交的线程池, 在其中执行时 {@link #isRejected()} 为 true
+     */
+    public ServerLane(String name, int threads, int queueSize, ServerLane overflow) {
+        this.name = name;
+        this.overflow = overflow;
+        this.executor = ExecutorBuilder.create()
+                .setCorePoolSize(threads)
+                .setMaxPoolSize(threads)
+                .setWorkQueue(new LinkedBlockingQueue<>(queueSize))
+                .setThreadFactory(ThreadFactoryBuilder.create()
+                        .setNamePrefix("http-" + name + "-")
+                        .setDaemon(true)
+                        .build())
+                .setHandler(new ThreadPoolExecutor.AbortPolicy())
+                .build();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long submitTime = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startTime = System.nanoTime();
+                long wait = startTime - submitTime;
+                waitNanos.add(wait);
+                maxWaitNanos.accumulateAndGet(wait, Math::max);
+                try {
+                    command.run();
+                } finally {
+                    long time = System.nanoTime() - startTime;
+                    runNanos.add(time);
+                    maxRunNanos.accumulateAndGet(time, Math::max);
+                    count.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            if (Objects.isNull(overflow)) {
+                throw e;
+            }
+            overflow.execute(() -> {
+                REJECTED.set(true);
+                try {
+                    command.run();
+                } finally {
+                    REJECTED.remove();
+                }
+            });
+        }
+    }
+
+    /**
+     * 当前请求是否因队列已满被转交, 此时应直接返回 503
+     *
+     * @return 是否被拒绝
+     */
+    public static boolean isRejected() {
+        return Boolean.TRUE.equals(REJECTED.get());
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        if (Objects.nonNull(overflow)) {
+            overflow.shutdown();
+        }
+    }
+
+    public LaneStats stats() {
+        long n = Math.max(count.sum(), 1);
+        return new LaneStats()
+                .setName(name)
+                .setThreads(executor.getMaximumPoolSize())
+                .setActive(executor.getActiveCount())
+                .setQueued(executor.getQueue().size())
+                .setCount(count.sum())
+                .setRejected(rejected.sum())
+                .setAvgWaitMillis(TimeUnit.NANOSECONDS.toMillis(waitNanos.sum() / n))
+                .setMaxWaitMillis(TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()))
+                .setAvgRunMillis(TimeUnit.NANOSECONDS.toMillis(runNanos.sum() / n))
+                .setMaxRunMillis(TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get()));
+    }
+
+    /**
+     * 线程池统计
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class LaneStats {
+        /**
+         * 名称
+         */
+        private String name;
+
+        /**
+         * 线程数
+         */
+        private Integer threads;
+
+        /**
+         * 处理中
+         */
+        private Integer active;
+
+        /**
+         * 排队中
+         */
+        private Integer queued;
+
+        /**
+         * 已处理
+         */
+        private Long count;
+
+        /**
+         * 被拒绝
+         */
+        private Long rejected;
+
+        /**
+         * 平均排队时间
+         */
+        private Long avgWaitMillis;
+
+        /**
+         * 最长排队时间
+         */
+        private Long maxWaitMillis;
+
+        /**
+         * 平均处理时间
+         */
+        private Long avgRunMillis;
+
+        /**
+         * 最长处理时间
+         */
+        private Long maxRunMillis;
+    }
+}
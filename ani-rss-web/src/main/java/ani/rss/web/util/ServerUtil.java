@@ -15,6 +15,7 @@ import cn.hutool.core.lang.PatternPool;
 import cn.hutool.core.net.Ipv4Util;
 import cn.hutool.core.net.NetUtil;
 import cn.hutool.core.util.ClassUtil;
+import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.RuntimeUtil;
 import cn.hutool.http.HttpStatus;
@@ -22,13 +23,17 @@ import cn.hutool.http.server.HttpServerRequest;
 import cn.hutool.http.server.HttpServerResponse;
 import cn.hutool.http.server.SimpleServer;
 import cn.hutool.log.Log;
+import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpServer;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import static ani.rss.web.util.AuthUtil.getIp;
 
@@ -38,10 +43,28 @@ public class ServerUtil {
     public static final ThreadLocal<HttpServerResponse> RESPONSE = new ThreadLocal<>();
     public static SimpleServer HTTP_SERVER;
 
+    /**
+     * 普通接口
+     */
+    public static ServerLane API_LANE;
+
+    /**
+     * 视频、文件、日志打包等耗时接口, 不占用普通接口的线程
+     */
+    public static ServerLane BULK_LANE;
+
+    private static final List<String> BULK_PATHS = List.of(
+            "/api/file", "/api/playitem", "/api/playlist", "/api/downloadLogs",
+            "/api/items", "/api/cover", "/api/upload", "/api/scrape", "/api/collection"
+    );
+
     public static void start() {
         // 创建http/https服务
         createServer();
 
+        // 处理线程
+        createLanes();
+
         // 添加过滤器
         addFilter(HTTP_SERVER);
 
@@ -90,33 +113,95 @@ public class ServerUtil {
         HTTP_SERVER = new SimpleServer(inetSocketAddress);
     }
 
+    /**
+     * 创建处理线程, 修改线程数需重启
+     */
+    public static void createLanes() {
+        Config config = ConfigUtil.CONFIG;
+        int threads = Math.max(ObjectUtil.defaultIfNull(config.getServerThreads(), 16), 1);
+        int bulkThreads = Math.max(ObjectUtil.defaultIfNull(config.getServerBulkThreads(), 4), 1);
+
+        // 接收线程只有一个, 不能在其中处理请求; 队列满时转交给单独的线程, 只返回 503
+        ServerLane reject = new ServerLane("reject", 1, 256, null);
+        API_LANE = new ServerLane("api", threads, 256, reject);
+        BULK_LANE = new ServerLane("bulk", bulkThreads, 64, null);
+
+        HTTP_SERVER.setExecutor(API_LANE);
+    }
+
+    /**
+     * 是否为耗时接口
+     *
+     * @param path 路径
+     * @return 是否为耗时接口
+     */
+    public static Boolean isBulk(String path) {
+        for (String bulkPath : BULK_PATHS) {
+            if (!path.startsWith(bulkPath)) {
+                continue;
+            }
+            if (path.length() == bulkPath.length() || path.charAt(bulkPath.length()) == '/') {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static void addFilter(SimpleServer server) {
         server.addFilter((req, res, chain) -> {
-            REQUEST.set(req);
-            RESPONSE.set(res);
-            Config config = ConfigUtil.CONFIG;
-            Boolean isInnerIP = config.getInnerIP();
+            if (ServerLane.isRejected()) {
+                res.sendError(HttpStatus.HTTP_UNAVAILABLE, "服务繁忙, 请稍后重试");
+                return;
+            }
+            if (Objects.isNull(BULK_LANE) || !isBulk(req.getPath())) {
+                doFilter(req, res, chain);
+                return;
+            }
             try {
-                String ip = getIp();
-                // 仅允许内网ip访问
-                if (isInnerIP) {
-                    if (!PatternPool.IPV4.matcher(ip).matches()) {
-                        writeInnerIP();
-                        return;
-                    }
-                    if (!Ipv4Util.isInnerIP(ip)) {
-                        writeInnerIP();
-                        return;
+                BULK_LANE.execute(() -> {
+                    try {
+                        doFilter(req, res, chain);
+                    } catch (Exception e) {
+                        log.debug("{} {}", req.getPath(), e.getMessage());
+                        req.getHttpExchange().close();
                     }
-                }
-                chain.doFilter(req.getHttpExchange());
-            } finally {
-                REQUEST.remove();
-                RESPONSE.remove();
+                });
+            } catch (RejectedExecutionException e) {
+                res.sendError(HttpStatus.HTTP_UNAVAILABLE, "服务繁忙, 请稍后重试");
             }
         });
     }
 
+    private static void doFilter(HttpServerRequest req, HttpServerResponse res, Filter.Chain chain) throws IOException {
+        REQUEST.set(req);
+        RESPONSE.set(res);
+        Config config = ConfigUtil.CONFIG;
+        Boolean isInnerIP = config.getInnerIP();
+        try {
+            String ip = getIp();
+            // 仅允许内网ip访问
+            if (isInnerIP) {
+                if (!PatternPool.IPV4.matcher(ip).matches()) {
+                    writeInnerIP();
+                    return;
+                }
+                if (!Ipv4Util.isInnerIP(ip)) {
+                    writeInnerIP();
+                    return;
+                }
+            }
+            if (EventStream.PATH.equals(req.getPath())) {
+                // 推送连接由 EventStream 持有, 不经过 action
+                EventStream.open(req, res);
+                return;
+            }
+            chain.doFilter(req.getHttpExchange());
+        } finally {
+            REQUEST.remove();
+            RESPONSE.remove();
+        }
+    }
+
     public static void writeInnerIP() {
         HttpServerResponse response = RESPONSE.get();
         String html = ResourceUtil.readUtf8Str("template.html");
@@ -178,6 +263,12 @@ public class ServerUtil {
         }
         try {
             HTTP_SERVER.getRawServer().stop(0);
+            if (Objects.nonNull(API_LANE)) {
+                API_LANE.shutdown();
+            }
+            if (Objects.nonNull(BULK_LANE)) {
+                BULK_LANE.shutdown();
+            }
             log.info("http server stop");
         } catch (Exception e) {
             log.error(e.getMessage(), e);